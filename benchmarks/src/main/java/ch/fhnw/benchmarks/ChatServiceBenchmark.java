@@ -0,0 +1,97 @@
+package ch.fhnw.benchmarks;
+
+import ch.fhnw.model.Message;
+import ch.fhnw.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// ChatService über die öffentliche API gegen einen RecordedServer auf localhost: Senden einer
+// Nachricht sowie Poll und Benutzerliste mit Antworten in der Form der Server-Antworten (der
+// Inhalt wird beim Start erzeugt). Gemessen wird der ganze Weg inklusive HTTP über Loopback;
+// der Anteil von Serialisierung und Parsen zeigt sich im Vergleich der Größen von messages und users.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class ChatServiceBenchmark {
+
+    @Param({"10", "1000"})
+    public int messages;
+
+    @Param({"10000"})
+    public int users;
+
+    private RecordedServer server;
+    private ChatService service;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Map<String, String>> polled = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            polled.add(Map.of("username", "user" + (i % 50), "message", "Nachricht " + i + " mit ein wenig Text"));
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            names.add("user" + i);
+        }
+        server = new RecordedServer();
+        server.respond("/chat/poll", mapper.writeValueAsBytes(Map.of("messages", polled)));
+        server.respond("/users", mapper.writeValueAsBytes(Map.of("users", names)));
+        server.start();
+
+        service = new ChatService();
+        service.setBaseUrl(server.getBaseUrl());
+        if (!service.login("bench", "secret")) {
+            throw new IllegalStateException("Login am RecordedServer fehlgeschlagen");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+        server.close();
+    }
+
+    @Benchmark
+    public boolean sendMessage() throws Exception {
+        return service.sendMessage("alice", "Hallo, wie geht's?");
+    }
+
+    @Benchmark
+    public List<Message> pollMessages() throws Exception {
+        return service.pollMessages();
+    }
+
+    // Long-Poll mit portionsweiser Übergabe, wie ihn ChatEngine und PollingEngine benutzen.
+    @Benchmark
+    public int pollMessagesStreaming(Blackhole blackhole) {
+        return service.pollMessagesAsync(Duration.ofSeconds(30), blackhole::consume).join();
+    }
+
+    // Die synchrone Variante, die asynchrone liefert innerhalb von zwei Sekunden das gemerkte Ergebnis.
+    @Benchmark
+    public List<String> fetchAllUsers() {
+        return service.fetchAllUsers();
+    }
+}
@@ -0,0 +1,134 @@
+package ch.fhnw.benchmarks;
+
+import ch.fhnw.chatclient.ContactList;
+import ch.fhnw.chatclient.ContactSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// Abgleich und Suche der Kontaktliste: der frühere Weg aus refreshUsersAndOnline (HashSet,
+// komplett sortieren) und das Prädikat der FilteredList gegen Merge-Diff und Trigramm-Index.
+// Zwischen zwei Abfragen ändert sich rund ein Prozent der Benutzer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactListBenchmark {
+
+    @Param({"1000", "100000"})
+    public int contacts;
+
+    @Param({"ab", "mar"})
+    public String term;
+
+    private List<String> serverUsers;
+    private List<String> historyContacts;
+    private TreeSet<String> model;
+    private ContactSearchIndex index;
+    private List<String> sorted;
+    private List<String> sortedLower;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> previous = new ArrayList<>();
+        for (int i = 0; i < contacts; i++) {
+            previous.add(randomName(random) + i);
+        }
+        serverUsers = new ArrayList<>(previous);
+        for (int i = 0; i < contacts / 100; i++) {
+            serverUsers.set(random.nextInt(serverUsers.size()), randomName(random) + "-neu" + i);
+        }
+        Collections.shuffle(serverUsers, random);
+        historyContacts = new ArrayList<>(serverUsers.subList(0, Math.min(200, serverUsers.size())));
+
+        model = new TreeSet<>(ContactList.ORDER);
+        model.addAll(previous);
+        index = new ContactSearchIndex();
+        previous.forEach(index::add);
+        sorted = new ArrayList<>(model);
+        sortedLower = new ArrayList<>();
+        for (String name : sorted) {
+            sortedLower.add(ContactSearchIndex.normalize(name));
+        }
+    }
+
+    @Benchmark
+    public List<String> mergeAndSortLegacy() {
+        Set<String> merged = new HashSet<>(serverUsers);
+        merged.addAll(historyContacts);
+        List<String> result = new ArrayList<>(merged);
+        result.sort(String::compareToIgnoreCase);
+        return result;
+    }
+
+    @Benchmark
+    public int mergeDiff() {
+        TreeSet<String> target = new TreeSet<>(ContactList.ORDER);
+        target.addAll(serverUsers);
+        target.addAll(historyContacts);
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        ContactList.diff(model, target, added, removed);
+        return added.size() + removed.size();
+    }
+
+    @Benchmark
+    public int filterLegacy() {
+        String lower = term.toLowerCase();
+        int hits = 0;
+        for (String name : sorted) {
+            if (name.toLowerCase().contains(lower)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // Wie ContactList.filter ohne vorheriges Ergebnis: Index ab drei Zeichen, sonst die vorbereiteten Namen.
+    @Benchmark
+    public List<String> filterIndexed() {
+        String lower = ContactSearchIndex.normalize(term);
+        if (lower.length() >= ContactSearchIndex.GRAM) {
+            List<String> hits = index.find(lower);
+            hits.sort(ContactList.ORDER);
+            return hits;
+        }
+        List<String> hits = new ArrayList<>();
+        for (int i = 0; i < sortedLower.size(); i++) {
+            if (sortedLower.get(i).contains(lower)) {
+                hits.add(sorted.get(i));
+            }
+        }
+        return hits;
+    }
+
+    private static String randomName(Random random) {
+        int length = 4 + random.nextInt(8);
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = (char) ('a' + random.nextInt(26));
+            name.append(i == 0 && random.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package ch.fhnw.benchmarks;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.service.HistoryFormat;
+import ch.fhnw.service.HistoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// HistoryStore mit einer Unterhaltung von entries Einträgen und 1000 weiteren Kontakten.
+// Jede Lese-Messung leert vorher den Cache, gemessen wird also der Weg über die Shard-Dateien.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryStoreBenchmark {
+
+    private static final String OWNER = "bench";
+    private static final String CONTACT = "alice";
+    private static final int OTHER_CONTACTS = 1_000;
+    private static final int CHUNK = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    @Param({"BINARY", "JSON_LINES"})
+    public String format;
+
+    private Path dir;
+    private HistoryStore store;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("history-bench");
+        HistoryFormat historyFormat = format.equals("BINARY") ? HistoryFormat.BINARY : HistoryFormat.JSON_LINES;
+        store = new HistoryStore(dir.resolve("history.json"), historyFormat);
+        timestamp = 1_700_000_000_000L;
+        List<ChatEntry> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < entries; i++) {
+            chunk.add(new ChatEntry(CONTACT, i % 2 == 0, "Nachricht Nummer " + i + " im Verlauf", timestamp++));
+            if (chunk.size() == CHUNK) {
+                store.appendAll(OWNER, chunk);
+                chunk.clear();
+            }
+        }
+        for (int i = 0; i < OTHER_CONTACTS; i++) {
+            chunk.add(new ChatEntry("contact-" + i, false, "Hallo", timestamp++));
+        }
+        store.appendAll(OWNER, chunk);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        store.appendAll(OWNER, List.of(new ChatEntry(CONTACT, true, "Neue Nachricht", timestamp++)));
+    }
+
+    @Benchmark
+    public List<ChatEntry> loadLatestPage() {
+        store.getCache().clear();
+        return store.loadConversation(OWNER, CONTACT, Long.MAX_VALUE, 100);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 5)
+    public List<ChatEntry> loadConversation() {
+        store.getCache().clear();
+        return store.loadConversation(OWNER, CONTACT);
+    }
+
+    @Benchmark
+    public List<String> loadContacts() {
+        return store.loadContacts(OWNER);
+    }
+}
@@ -0,0 +1,102 @@
+package ch.fhnw.benchmarks;
+
+import ch.fhnw.model.Message;
+import ch.fhnw.service.ChatService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Ein leerer Poll, der häufigste Aufruf überhaupt, auf drei Wegen gegen denselben RecordedServer:
+//   exchangeOnly - nur HttpClient mit einer fertigen Anfrage, Body verworfen (Untergrenze)
+//   cachedPoll   - ChatService.pollMessages() mit der beim Login gebauten Anfrage
+//   legacyPoll   - der frühere Weg: HashMap, ObjectMapper, URI und HttpRequest pro Aufruf,
+//                  Antwort als String und JsonNode-Baum
+// Gedacht für "-prof gc": gc.alloc.rate.norm zählt alle Threads, also auch Server und
+// HttpClient. Was der Client selbst pro Poll allokiert, ist die Differenz zu exchangeOnly.
+// Start: java -jar target/benchmarks.jar PollPathBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class PollPathBenchmark {
+
+    private RecordedServer server;
+    private ChatService service;
+    private HttpClient client;
+    private ObjectMapper mapper;
+    private HttpRequest prebuilt;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new RecordedServer();
+        server.start();
+        service = new ChatService();
+        service.setBaseUrl(server.getBaseUrl());
+        if (!service.login("bench", "secret")) {
+            throw new IllegalStateException("Login am RecordedServer fehlgeschlagen");
+        }
+        client = HttpClient.newHttpClient();
+        mapper = new ObjectMapper();
+        prebuilt = HttpRequest.newBuilder(URI.create(server.getBaseUrl() + "/chat/poll"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        mapper.writeValueAsBytes(Map.of("token", RecordedServer.TOKEN))))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        service.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int exchangeOnly() throws Exception {
+        return client.send(prebuilt, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public List<Message> cachedPoll() throws Exception {
+        return service.pollMessages();
+    }
+
+    @Benchmark
+    public List<Message> legacyPoll() throws Exception {
+        Map<String, String> body = new HashMap<>();
+        body.put("token", RecordedServer.TOKEN);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(server.getBaseUrl() + "/chat/poll"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+        String response = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        JsonNode root = mapper.readTree(response);
+        if (root.has("messages")) {
+            return mapper.readerFor(new TypeReference<List<Message>>() {}).readValue(root.get("messages"));
+        }
+        return List.of();
+    }
+}
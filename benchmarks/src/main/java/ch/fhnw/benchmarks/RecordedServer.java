@@ -0,0 +1,67 @@
+package ch.fhnw.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lokaler Server für die Benchmarks von ChatService: jeder Pfad liefert immer dieselbe, beim
+// Start festgelegte Antwort. Anders als der StandInServer parst er keine Anfragen und baut keine
+// Antworten, damit möglichst wenig seiner eigenen Arbeit in die Messung (auch -prof gc) eingeht.
+// Wie der StandInServer braucht er -Dsun.net.httpserver.nodelay=true, das setzt der Fork der Benchmarks.
+final class RecordedServer implements AutoCloseable {
+
+    static final String TOKEN = "3f2a9c71d0b84e5fa1c2";
+
+    private final HttpServer server;
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+    RecordedServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::reply);
+        respond("/user/login", ("{\"token\":\"" + TOKEN + "\"}").getBytes(StandardCharsets.UTF_8));
+        respond("/chat/send", "{\"send\":true}".getBytes(StandardCharsets.UTF_8));
+        respond("/chat/poll", "{\"messages\":[]}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    void respond(String path, byte[] body) {
+        responses.put(path, body);
+    }
+
+    // Kein Executor: die Antworten laufen auf dem Dispatcher-Thread des Servers.
+    void start() {
+        server.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // Unbekannte Pfade bekommen 404 ohne Body.
+    private void reply(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+            byte[] body = responses.get(exchange.getRequestURI().getPath());
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
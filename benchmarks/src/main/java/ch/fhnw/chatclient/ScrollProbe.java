@@ -0,0 +1,131 @@
+package ch.fhnw.chatclient;
+
+import ch.fhnw.model.ChatEntry;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Messung fürs Scrollen im Chatverlauf: eine Unterhaltung mit 50'000 Einträgen wird Zeile für
+// Zeile durchgescrollt. Frames pro Sekunde sagen wenig, sie sind durch den Pulse begrenzt. Ausgegeben
+// werden deshalb Perzentile der CSS- und Layout-Zeit pro Pulse, verpasste Pulses und die Allokation
+// im FX-Thread pro Zeile. Liegt im Paket von BubbleCell, damit die Zelle nicht öffentlich sein muss.
+// Ohne Bildschirm läuft sie mit Monocle (liegt im benchmarks.jar):
+//
+// Start: java [-Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw]
+//        -cp target/benchmarks.jar ch.fhnw.chatclient.ScrollProbe [einträge] [zeilen pro frame]
+public final class ScrollProbe {
+
+    private static final int DEFAULT_ENTRIES = 50_000;
+    private static final int DEFAULT_ROWS_PER_FRAME = 3;
+    // Abstand zweier Pulses, ab dem mindestens einer ausgefallen ist
+    private static final double SKIPPED_FACTOR = 1.5;
+
+    private ScrollProbe() {
+    }
+
+    // Eigene Hauptklasse statt Application: so startet JavaFX auch vom Classpath aus.
+    public static void main(String[] args) {
+        Application.launch(Probe.class, args);
+    }
+
+    public static final class Probe extends Application {
+
+        public Probe() {
+        }
+
+        @Override
+        public void start(Stage stage) {
+            int entries = intParameter(0, DEFAULT_ENTRIES);
+            int rowsPerFrame = intParameter(1, DEFAULT_ROWS_PER_FRAME);
+
+            ObservableList<ChatEntry> items = FXCollections.observableArrayList();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < entries; i++) {
+                String text = "Nachricht " + i + (i % 7 == 0 ? " mit etwas mehr Text, damit die Blase umbricht" : "");
+                items.add(new ChatEntry("probe", i % 3 == 0, text, now - (entries - i) * 1000L));
+            }
+
+            ListView<ChatEntry> list = new ListView<>(items);
+            list.setCellFactory(view -> new BubbleCell());
+            Scene scene = new Scene(list, 500, 700);
+            scene.getStylesheets().add(BubbleCell.class.getResource("chat.css").toExternalForm());
+            stage.setScene(scene);
+            stage.show();
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long fxThread = Thread.currentThread().threadId();
+            long pulseNanos = 1_000_000_000L / Integer.getInteger("javafx.animation.pulse", 60);
+            int frameCount = (entries + rowsPerFrame - 1) / rowsPerFrame;
+            long[] layoutNanos = new long[frameCount];
+            long[] layoutStart = new long[1];
+            int[] measured = new int[1];
+
+            AnimationTimer timer = new AnimationTimer() {
+                private int row;
+                private long lastNanos;
+                private long startBytes;
+                private int skipped;
+
+                @Override
+                public void handle(long nanos) {
+                    if (lastNanos == 0) {
+                        // Der erste Frame baut die Zellen auf und zählt nicht mit
+                        lastNanos = nanos;
+                        startBytes = threads.getThreadAllocatedBytes(fxThread);
+                        measured[0] = 0;
+                        list.scrollTo(row);
+                        return;
+                    }
+                    if (nanos - lastNanos > SKIPPED_FACTOR * pulseNanos) {
+                        skipped++;
+                    }
+                    lastNanos = nanos;
+                    row += rowsPerFrame;
+                    if (row < entries) {
+                        list.scrollTo(row);
+                        return;
+                    }
+                    stop();
+                    long bytes = threads.getThreadAllocatedBytes(fxThread) - startBytes;
+                    long[] sorted = Arrays.copyOf(layoutNanos, measured[0]);
+                    Arrays.sort(sorted);
+                    System.out.println(String.format(Locale.ROOT,
+                            "%d Zeilen, %d Pulses, davon %d verpasst; CSS+Layout pro Pulse p50 %.2f ms, "
+                                    + "p95 %.2f ms, p99 %.2f ms, max %.2f ms; %d Bytes pro Zeile",
+                            entries, sorted.length, skipped, millis(sorted, 0.50), millis(sorted, 0.95),
+                            millis(sorted, 0.99), millis(sorted, 1.0), bytes / entries));
+                    Platform.exit();
+                }
+            };
+            scene.addPreLayoutPulseListener(() -> layoutStart[0] = System.nanoTime());
+            scene.addPostLayoutPulseListener(() -> {
+                if (layoutStart[0] != 0 && measured[0] < layoutNanos.length) {
+                    layoutNanos[measured[0]++] = System.nanoTime() - layoutStart[0];
+                }
+            });
+            timer.start();
+        }
+
+        private int intParameter(int index, int fallback) {
+            var raw = getParameters().getRaw();
+            return raw.size() > index ? Integer.parseInt(raw.get(index)) : fallback;
+        }
+
+        private static double millis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
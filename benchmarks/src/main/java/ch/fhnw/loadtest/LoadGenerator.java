@@ -0,0 +1,273 @@
+package ch.fhnw.loadtest;
+
+import ch.fhnw.model.Message;
+import ch.fhnw.service.ChatService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lastgenerator ohne UI: N ChatService-Sitzungen senden sich gegenseitig Nachrichten und holen sie
+// per Long-Poll ab. Am Ende stehen Durchsatz, p50/p99 für Senden und für die Zustellung (Senden bis
+// Empfang) sowie verlorene Nachrichten, also solche, die der Server angenommen, aber nie ausgeliefert hat.
+// Ohne --url läuft der Test gegen einen eingebetteten StandInServer; der braucht nodelay, sonst
+// wartet jede Antwort auf das verzögerte ACK.
+//
+// Start: java -Dsun.net.httpserver.nodelay=true -cp target/benchmarks.jar ch.fhnw.loadtest.LoadGenerator
+//        [--clients 20] [--seconds 10] [--rate 5] [--poll 5] [--latency 0] [--jitter 0] [--failures 0]
+//        [--url http://...]
+public class LoadGenerator {
+
+    private static final String PREFIX = "lg ";
+    // Nach dem Ende des Sendens wird höchstens so lange auf ausstehende Nachrichten gewartet
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int clients;
+    private final Duration duration;
+    private final double ratePerClient;
+    private final Duration pollWait;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Long> accepted = ConcurrentHashMap.newKeySet();
+    private final Set<Long> received = ConcurrentHashMap.newKeySet();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder pollErrors = new LongAdder();
+    private final Samples sendLatency = new Samples();
+    private final Samples deliveryLatency = new Samples();
+    private volatile boolean polling = true;
+
+    LoadGenerator(int clients, Duration duration, double ratePerClient, Duration pollWait) {
+        if (clients < 2) {
+            throw new IllegalArgumentException("Mindestens zwei Sitzungen nötig, sonst gibt es keinen Empfänger");
+        }
+        this.clients = clients;
+        this.duration = duration;
+        this.ratePerClient = ratePerClient;
+        this.pollWait = pollWait;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        LoadGenerator generator = new LoadGenerator(
+                Integer.parseInt(options.getOrDefault("clients", "20")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "10"))),
+                Double.parseDouble(options.getOrDefault("rate", "5")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("poll", "5"))));
+
+        String url = options.get("url");
+        if (url != null) {
+            generator.run(url, () -> { });
+            return;
+        }
+        try (StandInServer server = new StandInServer(0)) {
+            server.setLatency(Long.parseLong(options.getOrDefault("latency", "0")),
+                    Long.parseLong(options.getOrDefault("jitter", "0")));
+            server.start();
+            // Fehler erst nach dem Anmelden einschalten, sonst scheitert schon die Vorbereitung
+            double failures = Double.parseDouble(options.getOrDefault("failures", "0"));
+            generator.run(server.getBaseUrl(), () -> server.setFailureRate(failures));
+            System.out.printf("Server:     %d Anfragen, davon %d absichtlich mit Fehler beantwortet%n",
+                    server.getRequests(), server.getInjectedFailures());
+        }
+    }
+
+    // ready läuft, sobald alle Sitzungen angemeldet sind und bevor die Last beginnt.
+    void run(String baseUrl, Runnable ready) throws Exception {
+        // Eindeutige Namen pro Lauf, damit auch ein echter Server mehrfach getestet werden kann
+        String run = Long.toString(System.currentTimeMillis() % 100_000, 36);
+        List<String> users = new ArrayList<>();
+        List<ChatService> sessions = new ArrayList<>();
+        try {
+            for (int i = 0; i < clients; i++) {
+                String user = "load-" + run + "-" + i;
+                ChatService service = new ChatService();
+                sessions.add(service);
+                service.setBaseUrl(baseUrl);
+                service.register(user, "secret");
+                if (!service.login(user, "secret")) {
+                    throw new IllegalStateException("Login für " + user + " fehlgeschlagen");
+                }
+                users.add(user);
+            }
+            ready.run();
+            load(sessions, users);
+        } finally {
+            for (ChatService service : sessions) {
+                service.logout();
+                service.close();
+            }
+        }
+    }
+
+    private void load(List<ChatService> sessions, List<String> users) throws InterruptedException {
+        try (ExecutorService pollers = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ChatService service : sessions) {
+                pollers.submit(() -> pollLoop(service));
+            }
+            long start = System.nanoTime();
+            long deadline = start + duration.toNanos();
+            for (int i = 0; i < clients; i++) {
+                int self = i;
+                senders.submit(() -> sendLoop(sessions.get(self), users, self, deadline));
+            }
+            senders.shutdown();
+            senders.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+            long sendNanos = System.nanoTime() - start;
+
+            long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (!received.containsAll(accepted) && System.nanoTime() < drainDeadline) {
+                Thread.sleep(50);
+            }
+            polling = false;
+            pollers.shutdownNow();
+            report(sendNanos);
+        }
+    }
+
+    // Gleichmäßig verteilt ratePerClient Nachrichten pro Sekunde an zufällige andere Teilnehmer.
+    private void sendLoop(ChatService service, List<String> users, int self, long deadline) {
+        long interval = (long) (1_000_000_000L / ratePerClient);
+        // Versetzt starten, damit nicht alle Sitzungen im selben Moment senden
+        long next = System.nanoTime() + ThreadLocalRandom.current().nextLong(interval);
+        while (next < deadline) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(wait));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            next += interval;
+
+            int peer = ThreadLocalRandom.current().nextInt(users.size() - 1);
+            String recipient = users.get(peer >= self ? peer + 1 : peer);
+            long seq = sequence.incrementAndGet();
+            long sent = System.nanoTime();
+            try {
+                boolean ok = service.sendMessage(recipient, PREFIX + seq + " " + sent);
+                sendLatency.add(System.nanoTime() - sent);
+                if (ok) {
+                    accepted.add(seq);
+                } else {
+                    rejected.increment();
+                }
+            } catch (Exception e) {
+                sendErrors.increment();
+            }
+        }
+    }
+
+    private void pollLoop(ChatService service) {
+        while (polling && !Thread.currentThread().isInterrupted()) {
+            try {
+                List<Message> messages = service.pollMessages(pollWait);
+                polls.increment();
+                long now = System.nanoTime();
+                for (Message message : messages) {
+                    receive(message, now);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!polling) {
+                    return;
+                }
+                pollErrors.increment();
+                try {
+                    // Kurz warten, damit ein Fehler nicht zu einer Schleife ohne Pause führt
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Text: "lg <nummer> <sendezeit in ns>"; andere Nachrichten (echter Server) werden ignoriert.
+    private void receive(Message message, long now) {
+        String text = message.getMessage();
+        if (text == null || !text.startsWith(PREFIX)) {
+            return;
+        }
+        String[] parts = text.split(" ");
+        long seq = Long.parseLong(parts[1]);
+        if (received.add(seq)) {
+            deliveryLatency.add(now - Long.parseLong(parts[2]));
+        } else {
+            duplicates.increment();
+        }
+    }
+
+    private void report(long sendNanos) {
+        double seconds = sendNanos / 1e9;
+        Set<Long> lost = new HashSet<>(accepted);
+        lost.removeAll(received);
+        System.out.printf("Last:       %d Sitzungen, %.1f s, Ziel %.1f Nachrichten/s pro Sitzung%n",
+                clients, seconds, ratePerClient);
+        System.out.printf("Gesendet:   %d angenommen, %d abgelehnt, %d Fehler (%.1f/s angenommen)%n",
+                accepted.size(), rejected.sum(), sendErrors.sum(), accepted.size() / seconds);
+        System.out.printf("Empfangen:  %d (%.1f/s), %d doppelt, %d verloren (%.3f%%)%n",
+                received.size(), received.size() / seconds, duplicates.sum(), lost.size(),
+                accepted.isEmpty() ? 0.0 : 100.0 * lost.size() / accepted.size());
+        System.out.printf("Polls:      %d, davon %d mit Fehler%n", polls.sum(), pollErrors.sum());
+        System.out.println("Senden:     " + sendLatency.summary());
+        System.out.println("Zustellung: " + deliveryLatency.summary());
+    }
+
+    // "--name wert"-Paare
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unbekanntes Argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    // Alle Messwerte in Nanosekunden; die Perzentile sind exakt, nicht aus Buckets geschätzt.
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        synchronized String summary() {
+            if (size == 0) {
+                return "keine Messwerte";
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return String.format("p50 %.2f ms, p99 %.2f ms, max %.2f ms (%d Werte)",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[size - 1] / 1e6, size);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(rank, 0)] / 1e6;
+        }
+    }
+}
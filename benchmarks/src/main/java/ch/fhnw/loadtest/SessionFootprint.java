@@ -0,0 +1,72 @@
+package ch.fhnw.loadtest;
+
+import ch.fhnw.service.ChatEngine;
+import ch.fhnw.service.ChatService;
+import ch.fhnw.service.ChatSession;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Misst den Heap pro leerlaufender Sitzung: N Konten werden gegen einen StandInServer angemeldet,
+// einmal über eine ChatEngine (ein gemeinsamer Transport) und zum Vergleich als einzelne
+// ChatService-Instanzen mit je eigenem Client.
+//
+// Start: java -Dsun.net.httpserver.nodelay=true -cp target/benchmarks.jar ch.fhnw.loadtest.SessionFootprint [sitzungen]
+public class SessionFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        try (StandInServer server = new StandInServer(0)) {
+            server.start();
+            try (ChatService registrar = new ChatService()) {
+                registrar.setBaseUrl(server.getBaseUrl());
+                for (int i = 0; i < count; i++) {
+                    registrar.register("idle-" + i, "secret");
+                }
+            }
+
+            long before = usedHeap();
+            // Langes Intervall: nach dem ersten Poll bleiben die Sitzungen ruhig
+            try (ChatEngine engine = new ChatEngine(server.getBaseUrl(), ChatEngine.DEFAULT_MAX_CONCURRENT_POLLS,
+                    Duration.ofHours(1))) {
+                List<ChatSession> sessions = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    sessions.add(engine.open("idle-" + i, "secret", messages -> { }));
+                }
+                while (engine.pollsInFlight() > 0) {
+                    Thread.sleep(10);
+                }
+                report("ChatEngine", count, usedHeap() - before);
+            }
+
+            before = usedHeap();
+            List<ChatService> services = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ChatService service = new ChatService();
+                service.setBaseUrl(server.getBaseUrl());
+                service.login("idle-" + i, "secret");
+                services.add(service);
+            }
+            report("ChatService je Konto", count, usedHeap() - before);
+            for (ChatService service : services) {
+                service.logout();
+                service.close();
+            }
+        }
+    }
+
+    private static void report(String variant, int count, long bytes) {
+        System.out.printf("%-22s %d Sitzungen, %d KB Heap, %d Bytes pro Sitzung%n",
+                variant, count, bytes / 1024, bytes / count);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,47 @@
+package ch.fhnw.chatclient;
+
+import ch.fhnw.model.ChatEntry;
+import javafx.css.PseudoClass;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+
+// Zelle des Chatverlaufs. Label und HBox werden einmal pro Zelle gebaut; beim Scrollen werden
+// nur Text und die Pseudo-Klassen (:outgoing, :pending, :failed) getauscht, das Aussehen kommt aus chat.css.
+final class BubbleCell extends ListCell<ChatEntry> {
+
+    private static final PseudoClass OUTGOING = PseudoClass.getPseudoClass("outgoing");
+    private static final PseudoClass PENDING = PseudoClass.getPseudoClass("pending");
+    private static final PseudoClass FAILED = PseudoClass.getPseudoClass("failed");
+
+    private final Label bubble = new Label();
+    private final HBox row = new HBox(bubble);
+
+    BubbleCell() {
+        getStyleClass().add("bubble-cell");
+        row.getStyleClass().add("bubble-row");
+        bubble.getStyleClass().add("bubble");
+        bubble.setWrapText(true);
+        bubble.setMaxWidth(320);
+        setText(null);
+    }
+
+    @Override
+    protected void updateItem(ChatEntry item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setGraphic(null);
+            pseudoClassStateChanged(PENDING, false);
+            pseudoClassStateChanged(FAILED, false);
+        } else {
+            bubble.setText(item.getMessage());
+            pseudoClassStateChanged(OUTGOING, item.isOutgoing());
+            boolean failed = item instanceof PendingEntry pending && pending.isFailed();
+            pseudoClassStateChanged(PENDING, item instanceof PendingEntry && !failed);
+            pseudoClassStateChanged(FAILED, failed);
+            if (getGraphic() != row) {
+                setGraphic(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,773 @@
+package ch.fhnw.chatclient;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.model.Message;
+import ch.fhnw.model.OutboxMessage;
+import ch.fhnw.service.ChatService;
+import ch.fhnw.service.HistoryFormat;
+import ch.fhnw.service.HistoryStore;
+import ch.fhnw.service.HistoryWriter;
+import ch.fhnw.service.LatencyStats;
+import ch.fhnw.service.Metrics;
+import ch.fhnw.service.Outbox;
+import ch.fhnw.service.PollingEngine;
+import ch.fhnw.service.PresenceCache;
+import ch.fhnw.service.TaskGroup;
+import javafx.animation.PauseTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.PasswordField;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Separator;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ChatClientApp extends Application {
+
+    private static final String DEFAULT_URL = "http://javaprojects.ch:50001";
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_WINDOW = 500;
+    private static final Duration SEARCH_REFRESH_DELAY = Duration.millis(400);
+
+    private final ChatService chatService = new ChatService();
+    private final HistoryStore historyStore = new HistoryStore(HistoryFormat.BINARY);
+    private final HistoryWriter historyWriter = new HistoryWriter(historyStore);
+    private final PresenceCache presenceCache = new PresenceCache(chatService);
+    private final Outbox outbox = new Outbox(chatService, new Outbox.DeliveryListener() {
+        @Override
+        public void delivered(OutboxMessage message, long deliveredAt) {
+            onDelivered(message, deliveredAt);
+        }
+
+        @Override
+        public void failed(OutboxMessage message, Throwable lastError) {
+            onDeliveryFailed(message, lastError);
+        }
+    });
+    // Bündelt UI-Änderungen aus Polling, Outbox und Presence zu einem Durchlauf pro Frame
+    private final UiDispatcher ui = new UiDispatcher(this::scrollToLatest);
+    // Ein virtueller Thread pro Hintergrundaufgabe; blockierende Aufrufe kosten so keinen Plattform-Thread
+    private final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Aufgaben im worker, die laufen oder noch starten; virtuelle Threads haben keine Warteschlange,
+    // es gibt also kein "wartend" im Sinne eines Pools
+    private final LongAdder inFlight = new LongAdder();
+    private final LatencyStats displayLag = Metrics.stats("Latency", "pollToDisplay");
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private PollingEngine pollingEngine;
+    private TaskGroup userRefresh;
+    private volatile boolean running;
+
+    private Stage primaryStage;
+    private Label statusLabel;
+    private TextField urlField;
+    private TextField usernameField;
+    private PasswordField passwordField;
+
+    private ListView<String> contactListView;
+    private TextField searchField;
+    private ContactList contacts;
+    // Online-Status pro Kontakt, nur im FX-Thread benutzt; die Zellen hängen an diesen Properties
+    private final Map<String, BooleanProperty> presence = new HashMap<>();
+    private int onlineCount;
+    private Label onlineCountLabel;
+
+    private ListView<ChatEntry> chatListView;
+    private ObservableList<ChatEntry> conversationItems;
+    // Eigene Nachrichten, die noch in der Outbox liegen oder nicht zugestellt wurden, nach Id; nur im FX-Thread
+    private final Map<String, PendingEntry> pendingEntries = new HashMap<>();
+    private TextField messageField;
+    private Label contactStatus;
+    private Label headerLabel;
+    private boolean hasOlderEntries;
+    private boolean windowAtLatest = true;
+    private boolean loadingPage;
+
+    // Werden auch aus Hintergrund-Threads gelesen (Polling, Outbox, worker)
+    private volatile String currentUser;
+    private volatile String activeContact;
+    private boolean shutdownHookRegistered = false;
+    // shutdownApp läuft über setOnCloseRequest und stop(), der Shutdown-Hook kommt noch dazu
+    private final AtomicBoolean shutDown = new AtomicBoolean();
+
+    @Override
+    public void start(Stage stage) {
+        this.primaryStage = stage;
+        primaryStage.setTitle("Chat Client");
+        primaryStage.setOnCloseRequest(event -> {
+            shutdownApp();
+            Platform.exit();
+        });
+        registerShutdownHook();
+        presenceCache.addListener(this::onPresenceChanged);
+        Metrics.gauge("Executor", "worker in flight", inFlight::sum);
+        // Die beiden periodischen Refreshs liegen immer in der Queue und zählen nicht mit
+        Metrics.gauge("Executor", "scheduler queued", () -> {
+            ScheduledThreadPoolExecutor current = scheduler;
+            if (current == null) {
+                return 0;
+            }
+            return current.getQueue().stream()
+                    .filter(task -> !(task instanceof RunnableScheduledFuture<?> future && future.isPeriodic()))
+                    .count();
+        });
+
+        showLoginScene();
+        primaryStage.show();
+    }
+
+    @Override
+    public void stop() {
+        shutdownApp();
+    }
+
+    private void showLoginScene() {
+        Label title = new Label("Chat Client");
+        title.setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: #075e54;");
+
+        urlField = new TextField(DEFAULT_URL);
+        urlField.setPromptText("Server URL");
+
+        usernameField = new TextField();
+        usernameField.setPromptText("Username (min. 3 Zeichen)");
+
+        passwordField = new PasswordField();
+        passwordField.setPromptText("Passwort");
+
+        Button pingButton = new Button("Ping");
+        Button registerButton = new Button("Registrieren");
+        Button loginButton = new Button("Login");
+
+        statusLabel = new Label("Bereit");
+        statusLabel.setStyle("-fx-text-fill: #555;");
+
+        pingButton.setOnAction(e -> runAsync(this::handlePing));
+        registerButton.setOnAction(e -> runAsync(this::handleRegister));
+        loginButton.setOnAction(e -> runAsync(this::handleLogin));
+
+        VBox form = new VBox(12,
+                title,
+                new Label("Server"),
+                urlField,
+                new Label("Benutzername"),
+                usernameField,
+                new Label("Passwort"),
+                passwordField,
+                new HBox(10, pingButton, registerButton, loginButton),
+                statusLabel
+        );
+        form.setPadding(new Insets(24));
+        form.setAlignment(Pos.CENTER);
+        form.setStyle("-fx-background-color: white; -fx-border-radius: 12; -fx-background-radius: 12; -fx-effect: dropshadow(two-pass-box, rgba(0,0,0,0.1), 12, 0, 0, 4);");
+
+        BorderPane root = new BorderPane();
+        root.setCenter(form);
+        root.setPadding(new Insets(30));
+        root.setStyle("-fx-background-color: linear-gradient(to bottom right, #d7f0e8, #f7f7f7);");
+
+        Scene scene = new Scene(root, 420, 520);
+        primaryStage.setScene(scene);
+    }
+
+    private void handlePing() {
+        chatService.setBaseUrl(urlField.getText().trim());
+        boolean ok = chatService.ping();
+        updateStatus(ok ? "Server erreichbar" : "Server nicht erreichbar", ok);
+    }
+
+    private void handlePingWithToken() {
+        boolean ok = chatService.pingWithToken();
+        updateStatus(ok ? "Token gültig" : "Token ungültig oder abgelaufen", ok);
+    }
+
+    private void handleRegister() {
+        chatService.setBaseUrl(urlField.getText().trim());
+        try {
+            String result = chatService.register(usernameField.getText().trim(), passwordField.getText().trim());
+            updateStatus("Registriert: " + result, true);
+        } catch (Exception e) {
+            updateStatus("Registrierung fehlgeschlagen: " + e.getMessage(), false);
+        }
+    }
+
+    private void handleLogin() {
+        chatService.setBaseUrl(urlField.getText().trim());
+        try {
+            boolean success = chatService.login(usernameField.getText().trim(), passwordField.getText().trim());
+            if (success) {
+                boolean tokenOk = chatService.pingWithToken();
+                if (!tokenOk) {
+                    updateStatus("Login fehlgeschlagen: Token ungültig", false);
+                    chatService.clearToken();
+                    return;
+                }
+                currentUser = usernameField.getText().trim();
+                Platform.runLater(this::showChatScene);
+            } else {
+                updateStatus("Login fehlgeschlagen", false);
+            }
+        } catch (Exception e) {
+            updateStatus("Login fehlgeschlagen: " + e.getMessage(), false);
+        }
+    }
+
+    private void showChatScene() {
+        contacts = new ContactList(ui);
+        presence.clear();
+        onlineCount = 0;
+        conversationItems = FXCollections.observableArrayList();
+
+        contactListView = new ListView<>(contacts.items());
+        contactListView.setPrefWidth(240);
+        contactListView.setStyle("-fx-background-color: transparent;");
+        contactListView.getSelectionModel().selectedItemProperty().addListener((obs, old, sel) -> {
+            if (sel != null) {
+                selectContact(sel);
+            }
+        });
+        contactListView.setCellFactory(list -> new ContactCell(this::presenceOf));
+
+        searchField = new TextField();
+        searchField.setPromptText("Suche nach Kontakten");
+        // Gefiltert wird lokal bei jedem Tastendruck; vom Server nachgeladen wird erst,
+        // wenn die Eingabe kurz ruht
+        PauseTransition searchRefresh = new PauseTransition(SEARCH_REFRESH_DELAY);
+        searchRefresh.setOnFinished(e -> refreshUsersAndOnline());
+        searchField.textProperty().addListener((obs, old, text) -> {
+            contactListView.setItems(contacts.filter(text));
+            if (text.isBlank()) {
+                searchRefresh.stop();
+            } else {
+                searchRefresh.playFromStart();
+            }
+        });
+
+        Button refreshButton = new Button("Online aktualisieren");
+        refreshButton.setOnAction(e -> refreshUsersAndOnline());
+
+        Button pingTokenButton = new Button("Ping Token");
+        pingTokenButton.setOnAction(e -> runAsync(this::handlePingWithToken));
+
+        statusLabel = new Label("Verbunden mit " + chatService.getBaseUrl());
+        statusLabel.setStyle("-fx-text-fill: #555;");
+
+        Label userBadge = new Label(currentUser);
+        userBadge.setStyle("-fx-font-weight: bold; -fx-text-fill: #075e54;");
+
+        Button logoutButton = new Button("Logout");
+        logoutButton.setOnAction(e -> runAsync(this::logoutAndBack));
+
+        HBox userHeader = new HBox(10, userBadge, logoutButton);
+        userHeader.setAlignment(Pos.CENTER_LEFT);
+
+        onlineCountLabel = new Label("Online: 0");
+        onlineCountLabel.setStyle("-fx-text-fill: #075e54;");
+
+        VBox left = new VBox(12,
+                userHeader,
+                searchField,
+                onlineCountLabel,
+                contactListView,
+                new Separator(),
+                new HBox(10, refreshButton, pingTokenButton),
+                statusLabel
+        );
+        left.setPadding(new Insets(14));
+        left.setPrefWidth(260);
+        left.setStyle("-fx-background-color: #ededed;");
+
+        headerLabel = new Label("Keine Unterhaltung gewählt");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
+        contactStatus = new Label("offline");
+        contactStatus.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+
+        HBox header = new HBox(10, headerLabel, contactStatus);
+        header.setAlignment(Pos.CENTER_LEFT);
+        header.setPadding(new Insets(10));
+        header.setStyle("-fx-background-color: #075e54; -fx-text-fill: white;");
+        headerLabel.setStyle("-fx-text-fill: white; -fx-font-size: 16px; -fx-font-weight: bold;");
+        contactStatus.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+
+        chatListView = new ListView<>(conversationItems);
+        chatListView.setFocusTraversable(false);
+        chatListView.setStyle("-fx-background-color: #e5ddd5;");
+        chatListView.skinProperty().addListener((obs, old, skin) -> installPaging());
+        chatListView.setCellFactory(list -> {
+            BubbleCell cell = new BubbleCell();
+            cell.setOnContextMenuRequested(event -> {
+                if (cell.getItem() instanceof PendingEntry pending && pending.isFailed()) {
+                    failedMenu(pending).show(cell, event.getScreenX(), event.getScreenY());
+                }
+            });
+            return cell;
+        });
+
+        messageField = new TextField();
+        messageField.setPromptText("Nachricht eingeben...");
+        messageField.setOnAction(e -> sendCurrentMessage());
+
+        Button sendButton = new Button("Senden");
+        sendButton.setOnAction(e -> sendCurrentMessage());
+
+        HBox inputBar = new HBox(10, messageField, sendButton);
+        HBox.setHgrow(messageField, Priority.ALWAYS);
+        inputBar.setPadding(new Insets(10));
+        inputBar.setStyle("-fx-background-color: #f0f0f0;");
+
+        VBox right = new VBox(header, chatListView, inputBar);
+        VBox.setVgrow(chatListView, Priority.ALWAYS);
+
+        BorderPane root = new BorderPane();
+        root.setLeft(left);
+        root.setCenter(right);
+        root.setStyle("-fx-background-color: #d7f0e8;");
+
+        Scene chatScene = new Scene(root, 900, 600);
+        chatScene.getStylesheets().add(getClass().getResource("chat.css").toExternalForm());
+        primaryStage.setScene(chatScene);
+
+        loadContactsFromHistory();
+        refreshUsersAndOnline();
+        startSchedulers();
+        pendingEntries.clear();
+        for (OutboxMessage message : outbox.getPending(currentUser)) {
+            pendingEntries.put(message.getId(), new PendingEntry(message));
+        }
+        for (OutboxMessage message : outbox.getFailed(currentUser)) {
+            PendingEntry pending = new PendingEntry(message);
+            pending.setFailed(true);
+            pendingEntries.put(message.getId(), pending);
+        }
+        outbox.start(currentUser);
+        // Suchindex im Hintergrund laden, damit die erste Suche nicht erst indizieren muss
+        String user = currentUser;
+        runAsync(() -> historyStore.openSearchIndex(user));
+    }
+
+    private void loadContactsFromHistory() {
+        contacts.addAll(historyStore.loadContacts(currentUser));
+    }
+
+    private void selectContact(String contact) {
+        activeContact = contact;
+        headerLabel.setText(contact);
+        updateContactStatus(false);
+        runAsync(() -> loadConversation(contact));
+        presenceCache.isUserOnlineAsync(contact)
+                .thenAccept(online -> Platform.runLater(() -> {
+                    if (contact.equals(activeContact)) {
+                        updateContactStatus(online);
+                    }
+                }));
+    }
+
+    // Kopf, Zähler und die Zelle des Kontakts werden nur bei einem Wechsel online/offline neu gesetzt.
+    private void onPresenceChanged(String user, boolean online) {
+        ui.put("presence:" + user, () -> {
+            if (currentUser == null) {
+                return;
+            }
+            BooleanProperty state = presenceOf(user);
+            if (state.get() != online) {
+                state.set(online);
+                onlineCount += online ? 1 : -1;
+                onlineCountLabel.setText("Online: " + onlineCount);
+            }
+            if (user.equals(activeContact)) {
+                updateContactStatus(online);
+            }
+        });
+    }
+
+    private BooleanProperty presenceOf(String contact) {
+        return presence.computeIfAbsent(contact, key -> new SimpleBooleanProperty(false));
+    }
+
+    private void loadConversation(String contact) {
+        historyWriter.flush();
+        List<ChatEntry> page = historyStore.loadConversation(currentUser, contact, Long.MAX_VALUE, PAGE_SIZE);
+        Platform.runLater(() -> {
+            if (!contact.equals(activeContact)) {
+                return;
+            }
+            conversationItems.setAll(page);
+            conversationItems.addAll(pendingFor(contact));
+            hasOlderEntries = page.size() >= PAGE_SIZE;
+            windowAtLatest = true;
+            loadingPage = false;
+            chatListView.scrollTo(conversationItems.size() - 1);
+        });
+    }
+
+    // Ausstehende und nicht zugestellte eigene Nachrichten an contact, in Sende-Reihenfolge.
+    private List<PendingEntry> pendingFor(String contact) {
+        List<PendingEntry> entries = new ArrayList<>();
+        for (PendingEntry entry : pendingEntries.values()) {
+            if (entry.getContact().equals(contact)) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(ChatEntry::getTimestamp));
+        return entries;
+    }
+
+    // Ältere Seiten werden erst geladen, wenn der Benutzer ganz nach oben scrollt.
+    private void installPaging() {
+        for (Node node : chatListView.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, old, value) -> {
+                    if (value.doubleValue() <= bar.getMin()) {
+                        loadOlderPage();
+                    } else if (value.doubleValue() >= bar.getMax() && !windowAtLatest && !loadingPage
+                            && activeContact != null) {
+                        loadingPage = true;
+                        String contact = activeContact;
+                        runAsync(() -> loadConversation(contact));
+                    }
+                });
+            }
+        }
+    }
+
+    private void loadOlderPage() {
+        if (loadingPage || !hasOlderEntries || activeContact == null || conversationItems.isEmpty()) {
+            return;
+        }
+        loadingPage = true;
+        String contact = activeContact;
+        long before = conversationItems.get(0).getTimestamp();
+        runAsync(() -> {
+            List<ChatEntry> page = historyStore.loadConversation(currentUser, contact, before, PAGE_SIZE);
+            Platform.runLater(() -> {
+                loadingPage = false;
+                if (!contact.equals(activeContact)) {
+                    return;
+                }
+                hasOlderEntries = page.size() >= PAGE_SIZE;
+                conversationItems.addAll(0, page);
+                // Fenster begrenzen: beim Zurückblättern fallen die neuesten Einträge heraus
+                int overflow = conversationItems.size() - MAX_WINDOW;
+                if (overflow > 0) {
+                    conversationItems.remove(conversationItems.size() - overflow, conversationItems.size());
+                    windowAtLatest = false;
+                }
+                chatListView.scrollTo(page.size());
+            });
+        });
+    }
+
+    // Neue Einträge nur anzeigen, wenn das Fenster das Ende der Unterhaltung zeigt.
+    // Ein ganzes Bündel wird mit einem addAll angehängt und einmal gekürzt.
+    private void appendToConversation(List<ChatEntry> entries) {
+        if (!windowAtLatest || activeContact == null) {
+            return;
+        }
+        List<ChatEntry> visible = new ArrayList<>();
+        for (ChatEntry entry : entries) {
+            if (entry.getContact().equals(activeContact)) {
+                visible.add(entry);
+            }
+        }
+        if (visible.isEmpty()) {
+            return;
+        }
+        if (visible.size() > MAX_WINDOW) {
+            visible = visible.subList(visible.size() - MAX_WINDOW, visible.size());
+        }
+        conversationItems.addAll(visible);
+        int overflow = conversationItems.size() - MAX_WINDOW;
+        if (overflow > 0) {
+            conversationItems.remove(0, overflow);
+            hasOlderEntries = true;
+        }
+    }
+
+    private void sendCurrentMessage() {
+        String text = messageField.getText().trim();
+        if (text.isEmpty() || activeContact == null) {
+            return;
+        }
+        messageField.clear();
+        OutboxMessage message = outbox.submit(currentUser, activeContact, text);
+        PendingEntry pending = new PendingEntry(message);
+        pendingEntries.put(message.getId(), pending);
+        appendToConversation(List.of(pending));
+        scrollToLatest();
+    }
+
+    // In die History kommt eine Nachricht erst, wenn der Server sie angenommen hat; bis dahin
+    // steht sie als PendingEntry in der Anzeige.
+    private void onDelivered(OutboxMessage message, long deliveredAt) {
+        ChatEntry entry = message.toEntry(deliveredAt);
+        historyWriter.submitAll(message.getOwner(), List.of(entry));
+        if (pollingEngine != null) {
+            pollingEngine.wakeUp();
+        }
+        if (!message.getOwner().equals(currentUser)) {
+            return;
+        }
+        ui.post(() -> {
+            PendingEntry pending = pendingEntries.remove(message.getId());
+            int index = pending != null ? conversationItems.indexOf(pending) : -1;
+            if (index >= 0) {
+                conversationItems.set(index, entry);
+            } else {
+                appendToConversation(List.of(entry));
+            }
+        });
+        ui.scrollToEnd();
+    }
+
+    // Die Nachricht bleibt als nicht zugestellt in der Anzeige und im Journal der Outbox stehen,
+    // bis sie über das Kontextmenü erneut gesendet oder verworfen wird.
+    private void onDeliveryFailed(OutboxMessage message, Throwable lastError) {
+        String reason = lastError != null ? lastError.getMessage() : "User offline";
+        updateStatus("Nachricht an " + message.getRecipient() + " nicht zugestellt: " + reason, false);
+        ui.post(() -> {
+            PendingEntry pending = pendingEntries.get(message.getId());
+            if (pending != null && !pending.isFailed()) {
+                pending.setFailed(true);
+                // Gleiches Objekt, die Zellen merken die Änderung nicht von selbst
+                chatListView.refresh();
+            }
+        });
+    }
+
+    private ContextMenu failedMenu(PendingEntry pending) {
+        MenuItem resend = new MenuItem("Erneut senden");
+        resend.setOnAction(e -> {
+            pending.setFailed(false);
+            chatListView.refresh();
+            outbox.resend(currentUser, pending.getId());
+        });
+        MenuItem dismiss = new MenuItem("Verwerfen");
+        dismiss.setOnAction(e -> {
+            outbox.dismiss(currentUser, pending.getId());
+            pendingEntries.remove(pending.getId());
+            conversationItems.remove(pending);
+        });
+        return new ContextMenu(resend, dismiss);
+    }
+
+    // Wird von der PollingEngine mit jeder nicht-leeren Antwort aufgerufen (nicht im FX-Thread).
+    private void onMessages(List<Message> messages) {
+        if (!running) {
+            return;
+        }
+        try {
+            List<ChatEntry> received = new ArrayList<>();
+            for (Message msg : messages) {
+                received.add(new ChatEntry(msg.getUsername(), false, msg.getMessage(), System.currentTimeMillis()));
+            }
+            historyWriter.submitAll(currentUser, received);
+            Set<String> senders = new HashSet<>();
+            for (ChatEntry entry : received) {
+                senders.add(entry.getContact());
+            }
+            contacts.addAll(senders);
+            long polledAt = System.nanoTime();
+            ui.post(() -> {
+                appendToConversation(received);
+                displayLag.recordSince(polledAt);
+            });
+            ui.scrollToEnd();
+        } catch (Exception e) {
+            System.err.println("Polling Fehler: " + e.getMessage());
+        }
+    }
+
+    // Beide Listen werden parallel geladen und gemeinsam abgebrochen: wenn eine Anfrage
+    // fehlschlägt oder eine neuere Aktualisierung startet (z.B. beim Tippen in der Suche).
+    private void refreshUsersAndOnline() {
+        TaskGroup group = new TaskGroup();
+        synchronized (this) {
+            if (userRefresh != null) {
+                userRefresh.close();
+            }
+            userRefresh = group;
+        }
+        CompletableFuture<List<String>> allUsers = group.fork(chatService::fetchAllUsersAsync);
+        CompletableFuture<List<String>> online = group.fork(chatService::fetchOnlineUsersAsync);
+        group.join()
+                .thenRun(() -> showUsers(allUsers.join(), online.join()))
+                .exceptionally(e -> {
+                    if (!group.isClosed() || !(rootCause(e) instanceof CancellationException)) {
+                        System.err.println("Kontaktliste konnte nicht aktualisiert werden: " + rootCause(e).getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private void showUsers(List<String> allUsers, List<String> online) {
+        // Der Abgleich läuft hier im Hintergrund, im FX-Thread landen nur die Änderungen
+        Set<String> merged = new HashSet<>(allUsers);
+        merged.addAll(historyStore.loadContacts(currentUser));
+        String active = activeContact;
+        if (active != null) {
+            merged.add(active);
+        }
+        contacts.replaceAll(merged);
+
+        // Änderungen kommen über onPresenceChanged ins UI
+        presenceCache.updateAll(online);
+    }
+
+    // Fragt beim Server nur nach, wenn die Online-Liste älter als die TTL ist;
+    // eine Änderung kommt über onPresenceChanged ins UI.
+    private void refreshOnlineState() {
+        if (activeContact == null) {
+            return;
+        }
+        presenceCache.isUserOnlineAsync(activeContact)
+                .exceptionally(e -> {
+                    System.err.println("Online-Check fehlgeschlagen: " + rootCause(e).getMessage());
+                    return null;
+                });
+    }
+
+    private void updateContactStatus(boolean online) {
+        contactStatus.setText(online ? "online" : "offline");
+        contactStatus.setStyle(online
+                ? "-fx-text-fill: #c8facc; -fx-font-weight: bold;"
+                : "-fx-text-fill: #ffd6d6; -fx-font-weight: bold;");
+    }
+
+    private void updateStatus(String text, boolean success) {
+        ui.put("status", () -> {
+            statusLabel.setText(text);
+            statusLabel.setStyle(success ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
+        });
+    }
+
+    private void scrollToLatest() {
+        if (chatListView != null && !conversationItems.isEmpty()) {
+            chatListView.scrollTo(conversationItems.size() - 1);
+        }
+    }
+
+    private void logoutAndBack() {
+        stopSchedulers();
+        outbox.stop();
+        chatService.logout();
+        chatService.clearToken();
+        presenceCache.clear();
+        currentUser = null;
+        activeContact = null;
+        Platform.runLater(this::showLoginScene);
+    }
+
+    private void startSchedulers() {
+        stopSchedulers();
+        running = true;
+        pollingEngine = new PollingEngine(chatService, this::onMessages);
+        pollingEngine.start();
+        // Der Scheduler stößt nur an; die Aufrufe selbst laufen asynchron
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "ui-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::refreshOnlineState, 2, 4, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(this::refreshUsersAndOnline, 3, 10, TimeUnit.SECONDS);
+    }
+
+    private void stopSchedulers() {
+        running = false;
+        if (pollingEngine != null) {
+            pollingEngine.close();
+            pollingEngine = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void shutdownApp() {
+        if (!shutDown.compareAndSet(false, true)) {
+            return;
+        }
+        stopSchedulers();
+        worker.shutdownNow();
+        outbox.close();
+        historyWriter.close();
+        historyStore.close();
+        chatService.logout();
+        chatService.close();
+    }
+
+    private void runAsync(Runnable task) {
+        inFlight.increment();
+        worker.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                inFlight.decrement();
+            }
+        });
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private void registerShutdownHook() {
+        if (shutdownHookRegistered) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!shutDown.compareAndSet(false, true)) {
+                return;
+            }
+            historyWriter.close();
+            historyStore.close();
+            chatService.logout();
+            chatService.clearToken();
+        }));
+        shutdownHookRegistered = true;
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
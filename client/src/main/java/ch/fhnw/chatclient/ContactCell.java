@@ -0,0 +1,42 @@
+package ch.fhnw.chatclient;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.css.PseudoClass;
+import javafx.scene.control.ListCell;
+
+import java.util.function.Function;
+
+// Zelle der Kontaktliste. Sie hängt am Online-Property ihres Kontakts und setzt bei einem
+// Wechsel nur die Pseudo-Klasse :online neu; die Liste muss dafür nicht neu gezeichnet werden.
+final class ContactCell extends ListCell<String> {
+
+    private static final PseudoClass ONLINE = PseudoClass.getPseudoClass("online");
+
+    private final Function<String, BooleanProperty> presence;
+    private final ChangeListener<Boolean> onlineListener = (obs, old, online) -> pseudoClassStateChanged(ONLINE, online);
+    private BooleanProperty bound;
+
+    ContactCell(Function<String, BooleanProperty> presence) {
+        this.presence = presence;
+        getStyleClass().add("contact-cell");
+    }
+
+    @Override
+    protected void updateItem(String item, boolean empty) {
+        super.updateItem(item, empty);
+        if (bound != null) {
+            bound.removeListener(onlineListener);
+            bound = null;
+        }
+        if (empty || item == null) {
+            setText(null);
+            pseudoClassStateChanged(ONLINE, false);
+        } else {
+            setText(item);
+            bound = presence.apply(item);
+            bound.addListener(onlineListener);
+            pseudoClassStateChanged(ONLINE, bound.get());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ch.fhnw.chatclient;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// Sortierte Kontaktliste für die ListView. Der Abgleich mit einer neuen Benutzerliste läuft im
+// Hintergrund als Merge zweier sortierter Listen gegen ein eigenes Modell; im FX-Thread werden
+// danach nur noch die eingefügten und entfernten Namen per binärer Suche angewendet. So bleibt
+// die Auswahl erhalten und die Arbeit im FX-Thread hängt von der Anzahl Änderungen ab,
+// nicht von der Größe des Verzeichnisses.
+public final class ContactList {
+
+    // Gross-/Kleinschreibung egal, bei Gleichheit entscheidet die genaue Schreibweise
+    public static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final UiDispatcher ui;
+    private final ObservableList<String> items = FXCollections.observableArrayList();
+    // Stand, den items nach dem Abarbeiten aller geplanten Änderungen haben wird
+    private final TreeSet<String> model = new TreeSet<>(ORDER);
+    // Trigramm-Index über das Modell, für Suchbegriffe ab drei Zeichen
+    private final ContactSearchIndex search = new ContactSearchIndex();
+    // Ab hier nur im FX-Thread: die Namen aus items klein geschrieben an derselben Position,
+    // der aktuelle Suchbegriff und seine Treffer in sortierter Reihenfolge, ebenfalls mit der
+    // kleinen Schreibweise daneben
+    private final List<String> itemsLower = new ArrayList<>();
+    private final ObservableList<String> matches = FXCollections.observableArrayList();
+    private final List<String> matchesLower = new ArrayList<>();
+    private String term = "";
+
+    ContactList(UiDispatcher ui) {
+        this.ui = ui;
+    }
+
+    ObservableList<String> items() {
+        return items;
+    }
+
+    // Liste für die ListView zum Suchbegriff: ohne Begriff items, sonst die Treffer. Ein verlängerter
+    // Begriff entfernt nur Namen aus den bisherigen Treffern, statt alle Kontakte neu zu prüfen.
+    ObservableList<String> filter(String text) {
+        String next = ContactSearchIndex.normalize(text);
+        boolean narrowing = !term.isEmpty() && next.contains(term);
+        term = next;
+        if (next.isEmpty()) {
+            matches.clear();
+            matchesLower.clear();
+            return items;
+        }
+        if (narrowing) {
+            Set<String> dropped = new HashSet<>();
+            int kept = 0;
+            for (int i = 0; i < matchesLower.size(); i++) {
+                String lower = matchesLower.get(i);
+                if (lower.contains(next)) {
+                    matchesLower.set(kept++, lower);
+                } else {
+                    dropped.add(matches.get(i));
+                }
+            }
+            matchesLower.subList(kept, matchesLower.size()).clear();
+            // Ein Change-Event für alle entfernten Namen
+            matches.removeAll(dropped);
+        } else {
+            lookup(next);
+        }
+        return matches;
+    }
+
+    // Setzt die sortierten Treffer: über den Index, oder bei kurzen Begriffen über die vorbereiteten
+    // Namen, die schon in der richtigen Reihenfolge stehen. Treffer des Index, die items noch nicht
+    // erreicht haben, kommen mit apply dazu.
+    private void lookup(String text) {
+        List<String> hits = new ArrayList<>();
+        matchesLower.clear();
+        if (text.length() >= ContactSearchIndex.GRAM) {
+            List<String> found = search.find(text);
+            found.sort(ORDER);
+            for (String name : found) {
+                int index = Collections.binarySearch(items, name, ORDER);
+                if (index >= 0) {
+                    hits.add(name);
+                    matchesLower.add(itemsLower.get(index));
+                }
+            }
+        } else {
+            for (int i = 0; i < itemsLower.size(); i++) {
+                if (itemsLower.get(i).contains(text)) {
+                    hits.add(items.get(i));
+                    matchesLower.add(itemsLower.get(i));
+                }
+            }
+        }
+        matches.setAll(hits);
+    }
+
+    // Ersetzt den Inhalt durch contacts (Reihenfolge und Duplikate egal). Nicht im FX-Thread aufrufen.
+    void replaceAll(Collection<String> contacts) {
+        TreeSet<String> target = new TreeSet<>(ORDER);
+        target.addAll(contacts);
+        synchronized (this) {
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            diff(model, target, added, removed);
+            model.removeAll(removed);
+            model.addAll(added);
+            removed.forEach(search::remove);
+            added.forEach(search::add);
+            post(added, removed);
+        }
+    }
+
+    // Merge zweier nach ORDER sortierter Mengen: was nur in target steht, kommt nach added,
+    // was nur in current steht, nach removed.
+    public static void diff(SortedSet<String> current, SortedSet<String> target, List<String> added, List<String> removed) {
+        Iterator<String> from = current.iterator();
+        Iterator<String> to = target.iterator();
+        String a = from.hasNext() ? from.next() : null;
+        String b = to.hasNext() ? to.next() : null;
+        while (a != null || b != null) {
+            int cmp = a == null ? 1 : b == null ? -1 : ORDER.compare(a, b);
+            if (cmp < 0) {
+                removed.add(a);
+                a = from.hasNext() ? from.next() : null;
+            } else if (cmp > 0) {
+                added.add(b);
+                b = to.hasNext() ? to.next() : null;
+            } else {
+                a = from.hasNext() ? from.next() : null;
+                b = to.hasNext() ? to.next() : null;
+            }
+        }
+    }
+
+    // Fügt neue Kontakte hinzu, z.B. Absender eingehender Nachrichten.
+    void addAll(Collection<String> contacts) {
+        synchronized (this) {
+            List<String> added = new ArrayList<>();
+            for (String contact : contacts) {
+                if (model.add(contact)) {
+                    search.add(contact);
+                    added.add(contact);
+                }
+            }
+            added.sort(ORDER);
+            post(added, List.of());
+        }
+    }
+
+    // Wird unter der Sperre eingereiht, damit der FX-Thread die Änderungen in Modell-Reihenfolge sieht.
+    private void post(List<String> added, List<String> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        // Klein geschrieben wird hier im Hintergrund, nicht im FX-Thread
+        List<String> addedLower = new ArrayList<>(added.size());
+        for (String contact : added) {
+            addedLower.add(ContactSearchIndex.normalize(contact));
+        }
+        ui.post(() -> apply(added, addedLower, removed));
+    }
+
+    // added und removed sind sortiert, addedLower gehört positionsweise zu added.
+    private void apply(List<String> added, List<String> addedLower, List<String> removed) {
+        if (items.isEmpty() && removed.isEmpty()) {
+            // Erstes Laden: ein einziges Change-Event statt eines pro Name
+            itemsLower.addAll(addedLower);
+            items.setAll(added);
+            if (!term.isEmpty()) {
+                lookup(term);
+            }
+            return;
+        }
+        for (String contact : removed) {
+            int index = Collections.binarySearch(items, contact, ORDER);
+            if (index >= 0) {
+                itemsLower.remove(index);
+                items.remove(index);
+            }
+            int match = Collections.binarySearch(matches, contact, ORDER);
+            if (match >= 0) {
+                matchesLower.remove(match);
+                matches.remove(match);
+            }
+        }
+        for (int i = 0; i < added.size(); i++) {
+            String contact = added.get(i);
+            String lower = addedLower.get(i);
+            int index = Collections.binarySearch(items, contact, ORDER);
+            if (index < 0) {
+                itemsLower.add(-index - 1, lower);
+                items.add(-index - 1, contact);
+            }
+            if (!term.isEmpty() && lower.contains(term)) {
+                int match = Collections.binarySearch(matches, contact, ORDER);
+                if (match < 0) {
+                    matchesLower.add(-match - 1, lower);
+                    matches.add(-match - 1, contact);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ch.fhnw.chatclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Trigramm-Index über die Kontaktnamen für Suchbegriffe ab drei Zeichen. Jeder Name bekommt eine
+// Nummer und wird einmal klein geschrieben abgelegt; pro Trigramm gibt es die Nummern der Namen,
+// die es enthalten. Eine Suche prüft nur die Namen mit dem seltensten Trigramm des Begriffs.
+// Gefüllt wird der Index im Hintergrund zusammen mit dem Modell der ContactList, abgefragt im FX-Thread.
+public final class ContactSearchIndex {
+
+    public static final int GRAM = 3;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> lower = new ArrayList<>();
+    private final List<Integer> free = new ArrayList<>();
+    private final Map<Long, Postings> grams = new HashMap<>();
+
+    public ContactSearchIndex() {
+    }
+
+    public synchronized void add(String name) {
+        if (ids.containsKey(name)) {
+            return;
+        }
+        String text = normalize(name);
+        int id;
+        if (free.isEmpty()) {
+            id = lower.size();
+            names.add(name);
+            lower.add(text);
+        } else {
+            id = free.remove(free.size() - 1);
+            names.set(id, name);
+            lower.set(id, text);
+        }
+        ids.put(name, id);
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.computeIfAbsent(gram(text, i), key -> new Postings()).add(id);
+        }
+    }
+
+    public synchronized void remove(String name) {
+        Integer id = ids.remove(name);
+        if (id == null) {
+            return;
+        }
+        names.set(id, null);
+        String text = lower.set(id, null);
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            long key = gram(text, i);
+            Postings postings = grams.get(key);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                grams.remove(key);
+            }
+        }
+        free.add(id);
+    }
+
+    // Alle Namen, die term (normalisiert, mindestens GRAM Zeichen) enthalten; unsortiert.
+    public synchronized List<String> find(String term) {
+        List<String> hits = new ArrayList<>();
+        Postings rarest = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Postings postings = grams.get(gram(term, i));
+            if (postings == null) {
+                return hits;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            int id = rarest.ids[i];
+            if (lower.get(id).contains(term)) {
+                hits.add(names.get(id));
+            }
+        }
+        return hits;
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String text, int from) {
+        return (long) text.charAt(from) << 32 | (long) text.charAt(from + 1) << 16 | text.charAt(from + 2);
+    }
+
+    // Nummern ohne Boxing, aufsteigend sortiert: Einfügen und Entfernen per binärer Suche. Ein Name
+    // steht höchstens einmal drin, auch wenn das Trigramm mehrfach vorkommt.
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ch.fhnw.chatclient;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.model.OutboxMessage;
+
+// Eigene Nachricht, die noch in der Outbox liegt oder nicht zugestellt werden konnte.
+// Sie wird nur angezeigt; in die History kommt erst der zugestellte Eintrag.
+final class PendingEntry extends ChatEntry {
+
+    private final String id;
+    private boolean failed;
+
+    PendingEntry(OutboxMessage message) {
+        super(message.getRecipient(), true, message.getMessage(), message.getCreatedAt());
+        this.id = message.getId();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+}
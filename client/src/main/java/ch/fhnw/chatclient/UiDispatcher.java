@@ -0,0 +1,108 @@
+package ch.fhnw.chatclient;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sammelt Änderungen am UI aus Hintergrund-Threads und wendet sie gebündelt im FX-Thread an,
+// einmal pro Frame (Pulse) über einen AnimationTimer. Pro Frame laufen höchstens
+// MAX_PER_FRAME Änderungen, der Rest kommt im nächsten Frame dran; so bleibt die Arbeit pro
+// Frame begrenzt, egal wie schnell Nachrichten ankommen. Bei Änderungen mit Schlüssel
+// (Statuszeile, Online-Status eines Benutzers) zählt nur die letzte, und am Ende eines Frames
+// wird höchstens einmal gescrollt. Ohne Arbeit läuft der Timer nicht.
+final class UiDispatcher {
+
+    static final int MAX_PER_FRAME = 500;
+
+    private final Runnable scroll;
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private final Map<Object, Runnable> latest = new LinkedHashMap<>();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+    private boolean scrollRequested;
+    // Timer läuft oder sein Start ist schon eingereiht
+    private boolean active;
+
+    UiDispatcher(Runnable scroll) {
+        this.scroll = scroll;
+    }
+
+    // Wird in der Reihenfolge der Aufrufe ausgeführt.
+    synchronized void post(Runnable mutation) {
+        pending.add(mutation);
+        activate();
+    }
+
+    // Ersetzt eine noch nicht ausgeführte Änderung mit demselben Schlüssel.
+    synchronized void put(Object key, Runnable mutation) {
+        latest.remove(key);
+        latest.put(key, mutation);
+        activate();
+    }
+
+    synchronized void scrollToEnd() {
+        scrollRequested = true;
+        activate();
+    }
+
+    // Nur beim Übergang von leer zu nicht leer gibt es ein runLater, um den Timer im FX-Thread zu starten.
+    private void activate() {
+        if (!active) {
+            active = true;
+            Platform.runLater(timer::start);
+        }
+    }
+
+    private void drain() {
+        List<Runnable> mutations;
+        List<Runnable> replaced;
+        boolean scrollNow;
+        synchronized (this) {
+            if (pending.isEmpty() && latest.isEmpty() && !scrollRequested) {
+                // Ein Frame ohne Arbeit: Timer anhalten bis zum nächsten post
+                timer.stop();
+                active = false;
+                return;
+            }
+            int count = Math.min(pending.size(), MAX_PER_FRAME);
+            mutations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                mutations.add(pending.poll());
+            }
+            replaced = new ArrayList<>(latest.values());
+            latest.clear();
+            // Gescrollt wird erst, wenn alle angestauten Änderungen angewendet sind
+            scrollNow = scrollRequested && pending.isEmpty();
+            if (scrollNow) {
+                scrollRequested = false;
+            }
+        }
+        for (Runnable mutation : mutations) {
+            run(mutation);
+        }
+        for (Runnable mutation : replaced) {
+            run(mutation);
+        }
+        if (scrollNow) {
+            run(scroll);
+        }
+    }
+
+    // Ein Fehler in einer Änderung soll die übrigen im Bündel nicht verhindern.
+    private static void run(Runnable mutation) {
+        try {
+            mutation.run();
+        } catch (RuntimeException e) {
+            System.err.println("UI-Aktualisierung fehlgeschlagen: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ch.fhnw.model;
+
+// Eine Zeile im History-Journal: ein ChatEntry plus der Besitzer der Unterhaltung.
+public class HistoryRecord {
+    private String owner;
+    private String contact;
+    private boolean outgoing;
+    private String message;
+    private long timestamp;
+
+    public HistoryRecord() {}
+
+    public HistoryRecord(String owner, ChatEntry entry) {
+        this.owner = owner;
+        this.contact = entry.getContact();
+        this.outgoing = entry.isOutgoing();
+        this.message = entry.getMessage();
+        this.timestamp = entry.getTimestamp();
+    }
+
+    public ChatEntry toEntry() {
+        return new ChatEntry(contact, outgoing, message, timestamp);
+    }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public String getContact() { return contact; }
+    public void setContact(String contact) { this.contact = contact; }
+
+    public boolean isOutgoing() { return outgoing; }
+    public void setOutgoing(boolean outgoing) { this.outgoing = outgoing; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
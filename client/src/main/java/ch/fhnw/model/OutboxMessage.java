@@ -0,0 +1,50 @@
+package ch.fhnw.model;
+
+// Eine Zeile im Outbox-Journal. Eine Nachricht wird beim Einreihen mit delivered=false
+// geschrieben und nach der Zustellung ein zweites Mal mit delivered=true. Gibt die Outbox auf,
+// kommt eine Zeile mit failed=true; erledigt ist die Nachricht dann erst, wenn sie erneut
+// eingereiht (wieder failed=false) oder verworfen (delivered=true) wird.
+public class OutboxMessage {
+    private String id;
+    private String owner;
+    private String recipient;
+    private String message;
+    private long createdAt;
+    private boolean delivered;
+    private boolean failed;
+
+    public OutboxMessage() {}
+
+    public OutboxMessage(String id, String owner, String recipient, String message, long createdAt) {
+        this.id = id;
+        this.owner = owner;
+        this.recipient = recipient;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+
+    public ChatEntry toEntry(long timestamp) {
+        return new ChatEntry(recipient, true, message, timestamp);
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public String getRecipient() { return recipient; }
+    public void setRecipient(String recipient) { this.recipient = recipient; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public boolean isDelivered() { return delivered; }
+    public void setDelivered(boolean delivered) { this.delivered = delivered; }
+
+    public boolean isFailed() { return failed; }
+    public void setFailed(boolean failed) { this.failed = failed; }
+}
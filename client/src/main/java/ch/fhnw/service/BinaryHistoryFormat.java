@@ -0,0 +1,138 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Kompaktes Binärformat, Version 1.
+// Datei:   'C' 'H' 'B' <version>
+// Eintrag: varint Länge, danach Flags (Bit 0: outgoing, Bit 1: keine Nachricht),
+//          varint Timestamp und der Nachrichtentext als UTF-8 bis zum Ende des Eintrags.
+// Der Kontakt steht nicht im Eintrag, er ergibt sich aus der Shard.
+public class BinaryHistoryFormat implements HistoryFormat {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] HEADER = {'C', 'H', 'B', VERSION};
+    private static final int FLAG_OUTGOING = 1;
+    private static final int FLAG_NULL_MESSAGE = 2;
+    static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    // So viele Einträge in Folge müssen lesbar sein, damit skipCorrupt dort wieder aufsetzt
+    private static final int RESYNC_RECORDS = 3;
+
+    @Override
+    public String fileSuffix() {
+        return ".chb";
+    }
+
+    @Override
+    public byte[] fileHeader() {
+        return HEADER.clone();
+    }
+
+    @Override
+    public void writeRecord(ChatEntry entry, OutputStream out) throws IOException {
+        byte[] message = entry.getMessage() == null
+                ? new byte[0]
+                : entry.getMessage().getBytes(StandardCharsets.UTF_8);
+        int flags = (entry.isOutgoing() ? FLAG_OUTGOING : 0) | (entry.getMessage() == null ? FLAG_NULL_MESSAGE : 0);
+        long timestamp = entry.getTimestamp();
+        writeVarint(out, 1 + varintSize(timestamp) + message.length);
+        out.write(flags);
+        writeVarint(out, timestamp);
+        out.write(message);
+    }
+
+    @Override
+    public ChatEntry readRecord(ByteBuffer buffer, String contact) throws IOException {
+        return read(buffer, contact, true);
+    }
+
+    // Ohne Text wird der Eintrag nur geprüft und übersprungen, ohne Speicher für die Nachricht anzulegen
+    private static ChatEntry read(ByteBuffer buffer, String contact, boolean withText) throws IOException {
+        long length = readVarint(buffer);
+        if (length < 2 || length > MAX_RECORD_BYTES) {
+            throw new IOException("Ungültige Eintragslänge " + length);
+        }
+        if (buffer.remaining() < length) {
+            throw new EOFException("Unvollständiger History-Eintrag");
+        }
+        int end = buffer.position() + (int) length;
+        int flags = buffer.get();
+        if ((flags & ~(FLAG_OUTGOING | FLAG_NULL_MESSAGE)) != 0) {
+            throw new IOException("Ungültige Flags " + flags);
+        }
+        long timestamp = readVarint(buffer);
+        if (buffer.position() > end || (flags & FLAG_NULL_MESSAGE) != 0 && buffer.position() != end) {
+            throw new IOException("Ungültiger History-Eintrag");
+        }
+        String message = null;
+        if (withText && (flags & FLAG_NULL_MESSAGE) == 0) {
+            byte[] text = new byte[end - buffer.position()];
+            buffer.get(text);
+            message = new String(text, StandardCharsets.UTF_8);
+        }
+        buffer.position(end);
+        return new ChatEntry(contact, (flags & FLAG_OUTGOING) != 0, message, timestamp);
+    }
+
+    // Ohne Trennzeichen wird Byte für Byte nach einer Stelle gesucht, ab der mehrere Einträge
+    // hintereinander lesbar sind oder die Einträge genau am Dateiende aufgehen.
+    // Die Kandidaten werden nur geprüft, eine falsche Länge kostet also keinen Speicher.
+    @Override
+    public int skipCorrupt(ByteBuffer buffer, int from) {
+        for (int candidate = from + 1; candidate < buffer.limit(); candidate++) {
+            if (readableFrom(buffer.duplicate().position(candidate))) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean readableFrom(ByteBuffer buffer) {
+        try {
+            for (int i = 0; i < RESYNC_RECORDS && buffer.hasRemaining(); i++) {
+                read(buffer, null, false);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("Unvollständiger History-Eintrag");
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Ungültiges Varint");
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
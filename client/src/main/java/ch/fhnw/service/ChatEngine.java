@@ -0,0 +1,190 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.Message;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Viele angemeldete Konten in einem Prozess (Bots, Support-Agenten). Alle Sitzungen teilen sich
+// einen Transport und damit dessen Verbindungen und Sperren; pro Sitzung bleiben nur Token und
+// die fertigen Anfragen ihres ChatService. Gepollt wird reihum: fällige Sitzungen stehen in einer
+// Warteschlange, es laufen höchstens maxConcurrentPolls Anfragen gleichzeitig, und jede Sitzung
+// hat höchstens eine offen. So kommt jede Sitzung dran, egal wie viele andere gerade Verkehr haben.
+public class ChatEngine implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_CONCURRENT_POLLS = 16;
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(2);
+
+    // Bei Fehlern wird der Abstand pro Fehlversuch verdoppelt, bis höchstens hierhin
+    private static final long MAX_ERROR_DELAY_MILLIS = 30_000;
+    private static final AtomicInteger ENGINES = new AtomicInteger();
+
+    // Präfix der Gauges dieser Engine, z.B. "engine-2.sessions"
+    private final String name = "engine-" + ENGINES.incrementAndGet();
+    private final String baseUrl;
+    private final Transport transport;
+    private final int maxConcurrentPolls;
+    private final long pollIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Set<ChatSession> sessions = ConcurrentHashMap.newKeySet();
+
+    // Fällige Sitzungen in der Reihenfolge, in der sie fällig wurden; beides unter der Sperre
+    private final ArrayDeque<ChatSession> ready = new ArrayDeque<>();
+    private int polling;
+    private boolean gaugesRegistered;
+    private volatile boolean closed;
+
+    public ChatEngine(String baseUrl) {
+        this(baseUrl, DEFAULT_MAX_CONCURRENT_POLLS, DEFAULT_POLL_INTERVAL);
+    }
+
+    public ChatEngine(String baseUrl, int maxConcurrentPolls, Duration pollInterval) {
+        this(baseUrl, TransportConfig.DEFAULT, maxConcurrentPolls, pollInterval);
+    }
+
+    public ChatEngine(String baseUrl, TransportConfig transportConfig, int maxConcurrentPolls, Duration pollInterval) {
+        this.baseUrl = baseUrl;
+        this.transport = new Transport(transportConfig);
+        this.maxConcurrentPolls = maxConcurrentPolls;
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "engine-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Meldet ein Konto an und nimmt es sofort ins Polling auf. listener bekommt die Nachrichten
+    // dieser Sitzung, nie gleichzeitig, aber nicht immer im selben Thread.
+    public ChatSession open(String username, String password, Consumer<List<Message>> listener) throws Exception {
+        if (closed) {
+            throw new IllegalStateException("Engine ist geschlossen");
+        }
+        ChatService service = new ChatService(transport);
+        service.setBaseUrl(baseUrl);
+        if (!service.login(username, password)) {
+            throw new IOException("Login für " + username + " fehlgeschlagen");
+        }
+        ChatSession session = new ChatSession(this, username, service, listener);
+        sessions.add(session);
+        registerGauges();
+        enqueue(session);
+        return session;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public synchronized long pollsInFlight() {
+        return polling;
+    }
+
+    // Meldet alle Sitzungen ab und gibt den gemeinsamen Client frei.
+    @Override
+    public void close() {
+        closed = true;
+        for (ChatSession session : new ArrayList<>(sessions)) {
+            session.close();
+        }
+        scheduler.shutdownNow();
+        transport.close();
+        synchronized (this) {
+            if (gaugesRegistered) {
+                Metrics.removeGauge("Engine", name + ".sessions");
+                Metrics.removeGauge("Engine", name + ".pollsInFlight");
+            }
+        }
+    }
+
+    // Erst mit der ersten Sitzung, nicht im Konstruktor: die Gauges greifen auf die fertige Engine zu.
+    private synchronized void registerGauges() {
+        if (gaugesRegistered || closed) {
+            return;
+        }
+        gaugesRegistered = true;
+        Metrics.gauge("Engine", name + ".sessions", sessions::size);
+        Metrics.gauge("Engine", name + ".pollsInFlight", this::pollsInFlight);
+    }
+
+    void remove(ChatSession session) {
+        sessions.remove(session);
+    }
+
+    private void enqueue(ChatSession session) {
+        synchronized (this) {
+            if (closed || session.isClosed()) {
+                return;
+            }
+            ready.add(session);
+        }
+        pump();
+    }
+
+    // Startet Polls, solange Plätze frei sind. Gesendet wird außerhalb der Sperre, weil eine
+    // schon fertige Future ihren Callback sofort im aufrufenden Thread ausführt.
+    private void pump() {
+        List<ChatSession> due = new ArrayList<>();
+        synchronized (this) {
+            while (polling < maxConcurrentPolls && !ready.isEmpty()) {
+                ChatSession session = ready.poll();
+                if (!session.isClosed()) {
+                    polling++;
+                    due.add(session);
+                }
+            }
+        }
+        for (ChatSession session : due) {
+            CompletableFuture<List<Message>> poll;
+            try {
+                poll = session.service().pollMessagesAsync();
+            } catch (RuntimeException e) {
+                poll = CompletableFuture.failedFuture(e);
+            }
+            poll.whenComplete((messages, error) -> finished(session, messages, error));
+        }
+    }
+
+    // Mit Nachrichten kommt die Sitzung gleich wieder hinten in die Warteschlange, sonst nach dem Intervall.
+    private void finished(ChatSession session, List<Message> messages, Throwable error) {
+        long delay;
+        if (error != null) {
+            delay = session.failed(pollIntervalMillis, MAX_ERROR_DELAY_MILLIS, error);
+        } else {
+            session.succeeded();
+            if (!messages.isEmpty() && !session.isClosed()) {
+                session.deliver(messages);
+            }
+            delay = messages.isEmpty() ? pollIntervalMillis : 0;
+        }
+        synchronized (this) {
+            polling--;
+        }
+        if (delay == 0) {
+            enqueue(session);
+        } else if (!closed) {
+            try {
+                scheduler.schedule(() -> enqueue(session), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Engine wurde gerade geschlossen
+            }
+        }
+        pump();
+    }
+}
@@ -0,0 +1,708 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.LoginData;
+import ch.fhnw.model.Message;
+import ch.fhnw.model.TokenWrapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class ChatService implements AutoCloseable {
+
+    // Zusätzliche Zeit über dem Long-Poll-Timeout, bevor der Client selbst abbricht
+    private static final Duration LONG_POLL_GRACE = Duration.ofSeconds(5);
+    // Höchstens so viele gleichzeitige Anfragen pro Endpunkt, damit ein langsamer Server
+    // nicht mit jedem Tastendruck in der Suche eine weitere Anfrage bekommt
+    private static final int MAX_IN_FLIGHT_PER_ENDPOINT = 4;
+    // Benutzer- und Online-Listen werden höchstens so oft wirklich abgefragt
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(2);
+
+    private volatile String baseUrl = "http://javaprojects.ch:50001";
+    private volatile Endpoints endpoints = Endpoints.of(baseUrl);
+    private final Transport transport;
+    // Nur ein selbst angelegter Transport wird in close() auch geschlossen
+    private final boolean ownsTransport;
+    private final HttpClient httpClient;
+    // Timeout aller Anfragen außer dem Long-Poll; Aufrufer können mit orTimeout() kürzer begrenzen
+    private final Duration requestTimeout;
+    private final ObjectMapper mapper;
+    private volatile String authToken;
+    // Fertige Anfragen mit dem Token-Body; neu aufgebaut nur bei Login und Wechsel der Server-URL
+    private volatile Session session;
+    private final EndpointLimiter limiter = new EndpointLimiter(MAX_IN_FLIGHT_PER_ENDPOINT);
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    public ChatService() {
+        this(TransportConfig.DEFAULT);
+    }
+
+    public ChatService(TransportConfig config) {
+        this(new Transport(config), true);
+    }
+
+    // Mehrere Sitzungen (siehe ChatEngine) teilen sich einen Transport und damit dessen Verbindungen.
+    // Geschlossen wird er von dem, der ihn angelegt hat.
+    public ChatService(Transport transport) {
+        this(transport, false);
+    }
+
+    private ChatService(Transport transport, boolean ownsTransport) {
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
+        this.httpClient = transport.client();
+        this.requestTimeout = transport.config().requestTimeout();
+        this.mapper = Json.MAPPER;
+    }
+
+    public void setBaseUrl(String url) {
+        if (url.endsWith("/")) {
+            this.baseUrl = url.substring(0, url.length() - 1);
+        } else {
+            this.baseUrl = url;
+        }
+        this.endpoints = Endpoints.of(baseUrl);
+        updateToken(authToken);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public boolean ping() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(endpoints.ping())
+                    .timeout(requestTimeout)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = send(request);
+            return response.statusCode() == 200;
+        } catch (Exception e) {
+            System.err.println("Ping fehlgeschlagen: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean pingWithToken() {
+        Session current = session;
+        if (current == null) {
+            return false;
+        }
+        try {
+            String response = bodyOf(send(current.ping()));
+            JsonNode node = mapper.readTree(response);
+            if (node.has("ping")) {
+                return node.get("ping").asBoolean(false);
+            }
+            return response.contains("true");
+        } catch (Exception e) {
+            System.err.println("Ping (auth) fehlgeschlagen: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public String register(String user, String password) throws Exception {
+        LoginData data = new LoginData(user, password);
+
+        String requestBody = mapper.writeValueAsString(data);
+
+        return sendPostRequest(endpoints.register(), requestBody);
+    }
+
+    public boolean login(String user, String password) throws Exception {
+        LoginData data = new LoginData(user, password);
+
+        String requestBody = mapper.writeValueAsString(data);
+
+        String responseJson = sendPostRequest(endpoints.login(), requestBody);
+
+        TokenWrapper tokenWrapper = mapper.readValue(responseJson, TokenWrapper.class);
+        updateToken(tokenWrapper.getToken());
+        singleFlight.clear();
+
+        return this.authToken != null;
+    }
+
+    // Der Token-Body ist für alle authentifizierten Aufrufe gleich und wird nur hier serialisiert.
+    private void updateToken(String token) {
+        this.authToken = token;
+        if (token == null) {
+            this.session = null;
+            return;
+        }
+        try {
+            this.session = Session.of(endpoints, token, mapper.writeValueAsBytes(Map.of("token", token)), requestTimeout);
+        } catch (IOException e) {
+            throw new IllegalStateException("Token konnte nicht serialisiert werden", e);
+        }
+    }
+
+    private String sendPostRequest(URI uri, String jsonBody) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .timeout(requestTimeout)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .build();
+        return bodyOf(send(request));
+    }
+
+    private static String bodyOf(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new StatusException(response.statusCode(), response.body());
+        }
+        return response.body();
+    }
+
+    private InputStream sendStream(HttpRequest request) throws IOException, InterruptedException {
+        return checkStatus(send(request, HttpResponse.BodyHandlers.ofInputStream(), false));
+    }
+
+    private InputStream sendGetStream(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        return sendStream(request);
+    }
+
+    private static InputStream checkStatus(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() != 200) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            throw new StatusException(response.statusCode(), body);
+        }
+        return response.body();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return send(request, HttpResponse.BodyHandlers.ofString(), false);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, boolean longPoll)
+            throws IOException, InterruptedException {
+        Transport.Route route = transport.route(request.uri());
+        limiter.acquire(route.path());
+        try {
+            route.breaker().acquire();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<T> response = httpClient.send(request, handler);
+                record(route, start, response, null, longPoll);
+                return response;
+            } catch (IOException e) {
+                record(route, start, null, e, longPoll);
+                throw e;
+            } catch (InterruptedException | RuntimeException e) {
+                route.breaker().release();
+                throw e;
+            }
+        } finally {
+            limiter.release(route.path());
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request) {
+        return sendAsync(request, HttpResponse.BodyHandlers.ofString(), false);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                             boolean longPoll) {
+        Transport.Route route = transport.route(request.uri());
+        return limiter.submit(route.path(), () -> {
+            // Erst hier, damit eine Anfrage nicht schon beim Warten auf einen Platz die Probe belegt
+            try {
+                route.breaker().acquire();
+            } catch (CircuitOpenException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(request, handler);
+            // Nicht die abgeleitete Future zurückgeben, sonst käme cancel() nicht mehr bei der Anfrage an
+            exchange.whenComplete((response, error) -> record(route, start, response, error, longPoll));
+            return exchange;
+        });
+    }
+
+    // Gemessen wird bis zu den Headern; ein gestreamter Body wird danach gelesen.
+    // Ein Long-Poll wartet absichtlich bis zu seinem Timeout und hat deshalb eigene Messwerte,
+    // sonst verdecken seine Wartezeiten die Latenz der kurzen Polls auf demselben Pfad.
+    // Abgebrochene Anfragen (z.B. der Long-Poll beim Logout) werden gar nicht gemessen, ein
+    // Long-Poll, der ohne Nachricht abläuft, zählt nicht als Fehler.
+    // Für die Sperre zählen nur Fehler des Servers, nicht 4xx, die der Client verursacht hat.
+    private static void record(Transport.Route route, long start, HttpResponse<?> response, Throwable error,
+                               boolean longPoll) {
+        CircuitBreaker breaker = route.breaker();
+        Throwable cause = error != null ? unwrap(error) : null;
+        if (cause instanceof CancellationException) {
+            breaker.release();
+            return;
+        }
+        LatencyStats stats = longPoll ? Metrics.stats("Http", route.path() + " (long-poll)") : route.stats();
+        stats.recordSince(start);
+        if (longPoll && cause instanceof HttpTimeoutException) {
+            breaker.release();
+            return;
+        }
+        if (error != null || response.statusCode() >= 400) {
+            stats.recordError();
+        }
+        if (error != null || response.statusCode() >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    public int getInFlightRequests(String endpoint) {
+        return limiter.inFlight(endpoint);
+    }
+
+    public String getAuthToken() {
+        return authToken;
+    }
+
+    public boolean sendMessage(String recipient, String messageText) throws Exception {
+        String token = authToken;
+        if (token == null) {
+            throw new IllegalStateException("Kein Token vorhanden, bitte einloggen.");
+        }
+        return bodyOf(send(sendRequest(token, recipient, messageText))).contains("true");
+    }
+
+    // Wie bei sendMessageAsync direkt als Bytes, ohne Umweg über einen String.
+    private HttpRequest sendRequest(String token, String recipient, String messageText) throws IOException {
+        return post(endpoints.send(), Json.MESSAGE_WRITER.writeValueAsBytes(new Message(token, recipient, messageText)),
+                requestTimeout);
+    }
+
+    public List<Message> pollMessages() throws Exception {
+        Session current = session;
+        if (current == null) {
+            return List.of();
+        }
+        return readMessages(sendStream(current.poll()));
+    }
+
+    // Long-Poll: der Server darf die Anfrage bis zu wait offen halten, bis eine Nachricht da ist.
+    // Server ohne Long-Poll ignorieren das Feld "timeout" und antworten sofort.
+    public List<Message> pollMessages(Duration wait) throws Exception {
+        Session current = session;
+        if (current == null) {
+            return List.of();
+        }
+        try {
+            return readMessages(checkStatus(send(longPollRequest(current, wait),
+                    HttpResponse.BodyHandlers.ofInputStream(), true)));
+        } catch (HttpTimeoutException e) {
+            return List.of();
+        }
+    }
+
+    // Die Long-Poll-Anfrage hängt nur von Token und Wartezeit ab; gemerkt wird die zuletzt benutzte.
+    private HttpRequest longPollRequest(Session current, Duration wait) throws IOException {
+        LongPoll cached = current.longPoll;
+        if (cached != null && cached.timeout().equals(wait)) {
+            return cached.request();
+        }
+        byte[] body = mapper.writeValueAsBytes(Map.of("token", current.token(), "timeout", wait.toSeconds()));
+        HttpRequest request = post(current.endpoints().poll(), body, wait.plus(LONG_POLL_GRACE));
+        current.longPoll = new LongPoll(wait, request);
+        return request;
+    }
+
+    // Liest {"messages": [...]} oder ein blankes Array in einem Durchgang; andere Formen ergeben eine leere Liste.
+    private List<Message> readMessages(InputStream body) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        JsonStreams.<Message>readArray(mapper.getFactory(), body, "messages", Json.MESSAGE_READER, Integer.MAX_VALUE,
+                messages::addAll);
+        return messages;
+    }
+
+    public boolean logout() {
+        try {
+            Session current = session;
+            if (current == null) {
+                return true;
+            }
+            bodyOf(send(current.logout()));
+            updateToken(null);
+            singleFlight.clear();
+            return true;
+        } catch (Exception e) {
+            System.err.println("Logout fehlgeschlagen: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean isUserOnline(String usernameToCheck) {
+        try {
+            Session current = session;
+            if (current == null) {
+                return false;
+            }
+            return bodyOf(send(onlineCheck(current, usernameToCheck))).contains("true");
+        } catch (Exception e) {
+            System.err.println("Online-Check fehlgeschlagen: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public List<String> fetchAllUsers() {
+        try {
+            List<String> users = JsonStreams.readStringList(mapper.getFactory(), sendGetStream(endpoints.users()), "users");
+            if (users == null) {
+                System.err.println("Alle User laden: Unerwartetes Format");
+                return List.of();
+            }
+            return users;
+        } catch (Exception e) {
+            System.err.println("Alle User laden fehlgeschlagen: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    public List<String> fetchOnlineUsers() {
+        try {
+            Session current = session;
+            if (current == null) {
+                System.err.println("Online-Liste abgebrochen: kein Token.");
+                return List.of();
+            }
+            // Primär: POST /user/online mit Token (liefert ein Feld "online": [..])
+            List<String> online = JsonStreams.readStringList(mapper.getFactory(), sendStream(current.online()), "online");
+            return online != null ? online : fetchOnlineUsersFallback();
+        } catch (StatusException e) {
+            if (e.status() == 404) {
+                return fetchOnlineUsersFallback();
+            }
+            System.err.println("Online-Liste konnte nicht geladen werden: " + e.getMessage());
+            return List.of();
+        } catch (Exception e) {
+            // Bei Timeout oder Serverfehler würde der zweite Endpunkt genauso scheitern
+            System.err.println("Online-Liste konnte nicht geladen werden: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<String> fetchOnlineUsersFallback() {
+        try {
+            List<String> online = JsonStreams.readStringList(mapper.getFactory(),
+                    sendGetStream(endpoints.usersOnline()), "online");
+            return online != null ? online : List.of();
+        } catch (Exception ex) {
+            System.err.println("Fallback Online-Liste konnte nicht geladen werden: " + ex.getMessage());
+            return List.of();
+        }
+    }
+
+    // Asynchrone Varianten über HttpClient.sendAsync: es wartet kein Thread auf die Antwort.
+    // cancel() auf der zurückgegebenen Future bricht auch die HTTP-Anfrage ab.
+
+    public CompletableFuture<Boolean> pingAsync() {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(endpoints.ping())
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        CompletableFuture<HttpResponse<String>> exchange = sendAsync(request);
+        return cancelling(exchange.thenApply(response -> response.statusCode() == 200), exchange);
+    }
+
+    public CompletableFuture<Boolean> sendMessageAsync(String recipient, String messageText) {
+        String token = authToken;
+        if (token == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Kein Token vorhanden, bitte einloggen."));
+        }
+        HttpRequest request;
+        try {
+            request = sendRequest(token, recipient, messageText);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return exchangeAsync(request, in -> readText(in).contains("true"));
+    }
+
+    public CompletableFuture<List<Message>> pollMessagesAsync() {
+        Session current = session;
+        if (current == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return exchangeAsync(current.poll(), this::readMessages);
+    }
+
+    // Long-Poll wie pollMessages(Duration); ein Timeout gilt als leere Antwort.
+    public CompletableFuture<List<Message>> pollMessagesAsync(Duration wait) {
+        List<Message> messages = new ArrayList<>();
+        return pollMessagesAsync(wait, messages::addAll).thenApply(count -> messages);
+    }
+
+    // Long-Poll, der die Nachrichten schon während des Lesens portionsweise an sink weitergibt,
+    // damit ein großer Rückstand nicht erst komplett im Speicher liegen muss. Liefert die Anzahl.
+    public CompletableFuture<Integer> pollMessagesAsync(Duration wait, Consumer<List<Message>> sink) {
+        Session current = session;
+        if (current == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        HttpRequest request;
+        try {
+            request = longPollRequest(current, wait);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Integer> poll = exchangeAsync(request,
+                in -> Math.max(0, JsonStreams.<Message>readArray(mapper.getFactory(), in, "messages",
+                        Json.MESSAGE_READER, JsonStreams.DEFAULT_BATCH_SIZE, sink)), true);
+        CompletableFuture<Integer> result = poll.exceptionally(e -> {
+            if (unwrap(e) instanceof HttpTimeoutException) {
+                return 0;
+            }
+            throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+        });
+        return cancelling(result, poll);
+    }
+
+    public CompletableFuture<Boolean> isUserOnlineAsync(String usernameToCheck) {
+        Session current = session;
+        if (current == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return singleFlight.run("online:" + usernameToCheck, MIN_REFRESH_INTERVAL, () -> {
+            HttpRequest request;
+            try {
+                request = onlineCheck(current, usernameToCheck);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return exchangeAsync(request, in -> readText(in).contains("true"));
+        });
+    }
+
+    // Die Abfrage für einen Benutzer hängt nur von Token und Name ab und wird pro Sitzung einmal gebaut.
+    // Gefragt wird nach Kontakten, die Menge bleibt also klein; mit dem Logout ist sie weg.
+    private HttpRequest onlineCheck(Session current, String user) throws IOException {
+        HttpRequest request = current.userChecks.get(user);
+        if (request == null) {
+            byte[] body = mapper.writeValueAsBytes(Map.of("token", current.token(), "username", user));
+            request = post(current.endpoints().online(), body, requestTimeout);
+            current.userChecks.put(user, request);
+        }
+        return request;
+    }
+
+    // Gleichzeitige Aufrufer teilen sich eine Anfrage (siehe SingleFlight).
+    public CompletableFuture<List<String>> fetchAllUsersAsync() {
+        return singleFlight.run("users", MIN_REFRESH_INTERVAL, () -> getAsync(endpoints.users(), body -> {
+            List<String> users = JsonStreams.readStringList(mapper.getFactory(), body, "users");
+            return users != null ? users : List.of();
+        }));
+    }
+
+    // Wie fetchOnlineUsers: nur bei unerwartetem Format oder 404 wird GET /users/online versucht,
+    // andere Fehler kommen beim Aufrufer an.
+    public CompletableFuture<List<String>> fetchOnlineUsersAsync() {
+        Session current = session;
+        if (current == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return singleFlight.run("online", MIN_REFRESH_INTERVAL, () -> requestOnlineUsers(current));
+    }
+
+    private CompletableFuture<List<String>> requestOnlineUsers(Session current) {
+        CompletableFuture<List<String>> primary = exchangeAsync(current.online(),
+                body -> JsonStreams.readStringList(mapper.getFactory(), body, "online"));
+        CompletableFuture<List<String>> result = primary
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof StatusException status && status.status() == 404) {
+                        return null;
+                    }
+                    throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                })
+                .thenCompose(list -> list != null ? CompletableFuture.completedFuture(list) : fetchOnlineUsersFallbackAsync());
+        return cancelling(result, primary);
+    }
+
+    private CompletableFuture<List<String>> fetchOnlineUsersFallbackAsync() {
+        CompletableFuture<List<String>> fallback = getAsync(endpoints.usersOnline(), body -> {
+            List<String> users = JsonStreams.readStringList(mapper.getFactory(), body, "online");
+            return users != null ? users : List.of();
+        });
+        return fallback
+                .exceptionally(e -> {
+                    System.err.println("Fallback Online-Liste konnte nicht geladen werden: " + unwrap(e).getMessage());
+                    return List.of();
+                });
+    }
+
+    private <T> CompletableFuture<T> getAsync(URI uri, ResponseParser<T> parser) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        return exchangeAsync(request, parser);
+    }
+
+    private <T> CompletableFuture<T> exchangeAsync(HttpRequest request, ResponseParser<T> parser) {
+        return exchangeAsync(request, parser, false);
+    }
+
+    private static HttpRequest post(URI uri, byte[] body, Duration timeout) {
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    // Der Body wird als Stream gelesen, sobald die Header da sind; wo geparst wird, entscheidet
+    // der Transport (siehe Transport.readBody).
+    private <T> CompletableFuture<T> exchangeAsync(HttpRequest request, ResponseParser<T> parser, boolean longPoll) {
+        CompletableFuture<HttpResponse<InputStream>> exchange = sendAsync(request,
+                HttpResponse.BodyHandlers.ofInputStream(), longPoll);
+        return cancelling(transport.readBody(exchange, response -> {
+            try (InputStream body = checkStatus(response)) {
+                return parser.parse(body);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }), exchange);
+    }
+
+    // Eine abgeleitete Future gibt cancel() nicht an ihre Quelle weiter, das wird hier nachgeholt.
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> result, CompletableFuture<?> source) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static String readText(InputStream body) throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    public void clearToken() {
+        updateToken(null);
+        singleFlight.clear();
+    }
+
+    // Meldet nicht ab (dafür logout()), schließt nur einen selbst angelegten Transport.
+    @Override
+    public void close() {
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    // Einmal pro Server-URL geparste Endpunkte, statt bei jedem Aufruf URI.create. Alle Instanzen
+    // mit derselben URL teilen sich ein Objekt; in der Praxis gibt es nur eine oder zwei URLs.
+    private record Endpoints(URI ping, URI register, URI login, URI logout, URI send, URI poll,
+                             URI online, URI users, URI usersOnline) {
+        private static final Map<String, Endpoints> BY_URL = new ConcurrentHashMap<>();
+
+        static Endpoints of(String baseUrl) {
+            return BY_URL.computeIfAbsent(baseUrl, Endpoints::parse);
+        }
+
+        private static Endpoints parse(String baseUrl) {
+            return new Endpoints(
+                    URI.create(baseUrl + "/ping"),
+                    URI.create(baseUrl + "/user/register"),
+                    URI.create(baseUrl + "/user/login"),
+                    URI.create(baseUrl + "/user/logout"),
+                    URI.create(baseUrl + "/chat/send"),
+                    URI.create(baseUrl + "/chat/poll"),
+                    URI.create(baseUrl + "/user/online"),
+                    URI.create(baseUrl + "/users"),
+                    URI.create(baseUrl + "/users/online"));
+        }
+    }
+
+    // HttpRequest ist unveränderlich und ein ByteArray-Body kann beliebig oft gesendet werden,
+    // deshalb gelten die Anfragen mit Token-Body für die ganze Sitzung.
+    private static final class Session {
+        private final Endpoints endpoints;
+        private final String token;
+        private final HttpRequest ping;
+        private final HttpRequest poll;
+        private final HttpRequest online;
+        private final HttpRequest logout;
+        private volatile LongPoll longPoll;
+        private final Map<String, HttpRequest> userChecks = new ConcurrentHashMap<>();
+
+        private Session(Endpoints endpoints, String token, byte[] tokenBody, Duration timeout) {
+            this.endpoints = endpoints;
+            this.token = token;
+            this.ping = post(endpoints.ping(), tokenBody, timeout);
+            this.poll = post(endpoints.poll(), tokenBody, timeout);
+            this.online = post(endpoints.online(), tokenBody, timeout);
+            this.logout = post(endpoints.logout(), tokenBody, timeout);
+        }
+
+        static Session of(Endpoints endpoints, String token, byte[] tokenBody, Duration timeout) {
+            return new Session(endpoints, token, tokenBody, timeout);
+        }
+
+        Endpoints endpoints() { return endpoints; }
+        String token() { return token; }
+        HttpRequest ping() { return ping; }
+        HttpRequest poll() { return poll; }
+        HttpRequest online() { return online; }
+        HttpRequest logout() { return logout; }
+    }
+
+    private record LongPoll(Duration timeout, HttpRequest request) {
+    }
+
+    // Antwort mit einem anderen Status als 200; der Status entscheidet z.B. über den Fallback.
+    private static final class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        StatusException(int status, String body) {
+            super("Server Error " + status + ": " + body);
+            this.status = status;
+        }
+
+        int status() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.Message;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+// Ein angemeldetes Konto in einer ChatEngine. Der Zustand der Sitzung (Token, fertige Anfragen)
+// liegt in ihrem eigenen ChatService; geteilt wird nur der Transport der Engine.
+public final class ChatSession {
+
+    private final ChatEngine engine;
+    private final String username;
+    private final ChatService service;
+    private final Consumer<List<Message>> listener;
+    private volatile boolean closed;
+    // Fehlversuche in Folge; nur aus dem Abschluss des (einzigen) laufenden Polls geändert
+    private int failures;
+
+    ChatSession(ChatEngine engine, String username, ChatService service, Consumer<List<Message>> listener) {
+        this.engine = engine;
+        this.username = username;
+        this.service = service;
+        this.listener = listener;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // Für alles außer dem Polling, z.B. Benutzerlisten; nicht selbst ausloggen, dafür gibt es close().
+    public ChatService service() {
+        return service;
+    }
+
+    public CompletableFuture<Boolean> sendMessage(String recipient, String text) {
+        return service.sendMessageAsync(recipient, text);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Nimmt die Sitzung aus dem Polling und meldet sie beim Server ab.
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        engine.remove(this);
+        service.logout();
+    }
+
+    void deliver(List<Message> messages) {
+        try {
+            listener.accept(messages);
+        } catch (RuntimeException e) {
+            System.err.println("Nachrichten für " + username + " konnten nicht verarbeitet werden: " + e.getMessage());
+        }
+    }
+
+    void succeeded() {
+        failures = 0;
+    }
+
+    // Liefert die Wartezeit bis zum nächsten Versuch; gemeldet wird nur der erste Fehler einer Serie,
+    // damit ein Ausfall bei hunderten Sitzungen nicht das Log füllt. Eine Sperre meldet der
+    // CircuitBreaker schon selbst, einmal für alle Sitzungen.
+    long failed(long intervalMillis, long maxMillis, Throwable error) {
+        failures++;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (failures == 1 && !closed && !(cause instanceof CircuitOpenException)) {
+            System.err.println("Polling für " + username + " fehlgeschlagen: " + cause.getMessage());
+        }
+        return Math.min(intervalMillis << Math.min(failures, 10), maxMillis);
+    }
+}
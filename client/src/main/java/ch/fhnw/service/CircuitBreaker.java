@@ -0,0 +1,76 @@
+package ch.fhnw.service;
+
+// Sperre für einen Endpunkt, solange der Server offensichtlich nicht gesund ist. Nach threshold
+// Fehlern in Folge (Verbindungsfehler, Timeout, 5xx) schlagen Anfragen für openNanos sofort fehl,
+// statt Threads und Verbindungen zu binden. Danach darf genau eine Probe-Anfrage durch:
+// gelingt sie, ist der Endpunkt wieder offen, sonst beginnt die Sperre von vorn.
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String endpoint;
+    private final int threshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    CircuitBreaker(String endpoint, int threshold, long openNanos) {
+        this.endpoint = endpoint;
+        this.threshold = threshold;
+        this.openNanos = openNanos;
+    }
+
+    // Vor jeder Anfrage; danach genau einmal onSuccess, onFailure oder release.
+    synchronized void acquire() throws CircuitOpenException {
+        switch (state) {
+            case CLOSED -> {
+                return;
+            }
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    throw new CircuitOpenException(endpoint);
+                }
+                state = State.HALF_OPEN;
+            }
+            case HALF_OPEN -> {
+                if (probing) {
+                    throw new CircuitOpenException(endpoint);
+                }
+            }
+        }
+        probing = true;
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            System.err.println("Endpunkt " + endpoint + " antwortet wieder");
+        }
+    }
+
+    synchronized void onFailure() {
+        probing = false;
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= threshold)) {
+            if (state == State.CLOSED) {
+                System.err.println("Endpunkt " + endpoint + " gesperrt nach " + failures + " Fehlern in Folge");
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    // Abgebrochene Anfragen sagen nichts über den Server; eine Probe darf neu versucht werden.
+    synchronized void release() {
+        probing = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
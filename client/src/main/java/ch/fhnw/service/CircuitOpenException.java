@@ -0,0 +1,13 @@
+package ch.fhnw.service;
+
+import java.io.IOException;
+
+// Die Anfrage wurde gar nicht erst gesendet, weil der Endpunkt gesperrt ist (siehe CircuitBreaker).
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String endpoint) {
+        super("Endpunkt " + endpoint + " vorübergehend gesperrt, Server antwortet nicht");
+    }
+}
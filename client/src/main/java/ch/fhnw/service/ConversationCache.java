@@ -0,0 +1,183 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+// LRU-Cache für geladene Unterhaltungen, begrenzt durch ein
+// geschätztes Speicherbudget in Bytes. Kalte Unterhaltungen werden zuerst verdrängt.
+public class ConversationCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    // grobe Schätzung für Objekt-Header, Felder und Listen-Slot pro ChatEntry
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Conversation> conversations = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ConversationCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public ConversationCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized List<ChatEntry> getConversation(String owner, String contact) {
+        Conversation conversation = conversations.get(new Key(owner, contact));
+        if (conversation == null || !conversation.complete) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(conversation.entries);
+    }
+
+    // Liefert eine Seite aus dem Cache, falls die gecachten Einträge sie vollständig abdecken.
+    public synchronized List<ChatEntry> getPage(String owner, String contact, long beforeTimestamp, int limit) {
+        Conversation conversation = conversations.get(new Key(owner, contact));
+        if (conversation == null) {
+            misses++;
+            return null;
+        }
+        List<ChatEntry> entries = conversation.entries;
+        int to = entries.size();
+        while (to > 0 && entries.get(to - 1).getTimestamp() >= beforeTimestamp) {
+            to--;
+        }
+        int from = Math.max(0, to - limit);
+        while (from > 0 && entries.get(from - 1).getTimestamp() == entries.get(from).getTimestamp()) {
+            from--;
+        }
+        if (from == 0 && !conversation.complete && to - from < limit) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entries.subList(from, to));
+    }
+
+    public synchronized void putConversation(String owner, String contact, List<ChatEntry> entries) {
+        put(owner, contact, entries, true);
+    }
+
+    // Merkt sich nur das Ende einer Unterhaltung (z.B. die zuletzt geladene Seite).
+    public synchronized void putTail(String owner, String contact, List<ChatEntry> entries, boolean complete) {
+        Conversation existing = conversations.get(new Key(owner, contact));
+        if (existing != null && existing.entries.size() >= entries.size()) {
+            return;
+        }
+        put(owner, contact, entries, complete);
+    }
+
+    private void put(String owner, String contact, List<ChatEntry> entries, boolean complete) {
+        Key key = new Key(owner, contact);
+        Conversation previous = conversations.remove(key);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        Conversation conversation = new Conversation(new ArrayList<>(entries), complete);
+        if (conversation.bytes > maxBytes) {
+            return;
+        }
+        conversations.put(key, conversation);
+        usedBytes += conversation.bytes;
+        evictIfNeeded();
+    }
+
+    // Hält den Cache nach einem append konsistent, ohne die Unterhaltung neu zu laden.
+    public synchronized void onAppend(String owner, ChatEntry entry) {
+        Conversation conversation = conversations.get(new Key(owner, entry.getContact()));
+        if (conversation != null) {
+            conversation.entries.add(entry);
+            long size = estimate(entry);
+            conversation.bytes += size;
+            usedBytes += size;
+            evictIfNeeded();
+        }
+    }
+
+    // Für Änderungen mitten in einer Unterhaltung (z.B. ein Import älterer Einträge).
+    public synchronized void invalidate(String owner, String contact) {
+        Conversation conversation = conversations.remove(new Key(owner, contact));
+        if (conversation != null) {
+            usedBytes -= conversation.bytes;
+        }
+    }
+
+    public synchronized void clear() {
+        conversations.clear();
+        usedBytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getCachedConversationCount() {
+        return conversations.size();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Conversation> eldest = conversations.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long estimate(ChatEntry entry) {
+        int chars = (entry.getMessage() == null ? 0 : entry.getMessage().length())
+                + (entry.getContact() == null ? 0 : entry.getContact().length());
+        return ENTRY_OVERHEAD + 2L * chars;
+    }
+
+    // complete == false: entries ist nur das Ende der Unterhaltung
+    private static final class Conversation {
+        private final List<ChatEntry> entries;
+        private final boolean complete;
+        private long bytes;
+
+        private Conversation(List<ChatEntry> entries, boolean complete) {
+            this.entries = entries;
+            this.complete = complete;
+            for (ChatEntry entry : entries) {
+                bytes += estimate(entry);
+            }
+        }
+    }
+
+    private record Key(String owner, String contact) {
+        private Key {
+            Objects.requireNonNull(owner);
+            Objects.requireNonNull(contact);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ch.fhnw.service;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Begrenzt die gleichzeitig laufenden Anfragen pro Endpunkt (Pfad der URI).
+// Asynchrone Anfragen werden bei vollem Kontingent in eine Warteschlange gestellt statt
+// einen Thread zu blockieren; blockierende Aufrufe warten auf ein freies Kontingent.
+final class EndpointLimiter {
+
+    private final int maxInFlight;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    EndpointLimiter(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    <T> CompletableFuture<T> submit(String endpoint, Supplier<CompletableFuture<T>> request) {
+        Gate gate = gates.computeIfAbsent(endpoint, key -> new Gate(maxInFlight));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                // in der Warteschlange abgebrochen
+                gate.release();
+                return;
+            }
+            CompletableFuture<T> exchange;
+            try {
+                exchange = request.get();
+            } catch (RuntimeException e) {
+                gate.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            exchange.whenComplete((value, error) -> {
+                gate.release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    exchange.cancel(true);
+                }
+            });
+        };
+        gate.enqueue(start);
+        return result;
+    }
+
+    // Für blockierende Aufrufe: wartet auf ein freies Kontingent. Der Aufrufer muss release() aufrufen.
+    void acquire(String endpoint) throws InterruptedException {
+        gates.computeIfAbsent(endpoint, key -> new Gate(maxInFlight)).permits.acquire();
+    }
+
+    void release(String endpoint) {
+        gates.get(endpoint).release();
+    }
+
+    int inFlight(String endpoint) {
+        Gate gate = gates.get(endpoint);
+        return gate == null ? 0 : maxInFlight - gate.permits.availablePermits();
+    }
+
+    private static final class Gate {
+        private final Semaphore permits;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+        private Gate(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+        }
+
+        private void enqueue(Runnable start) {
+            synchronized (waiting) {
+                waiting.add(start);
+            }
+            drain();
+        }
+
+        private void release() {
+            permits.release();
+            drain();
+        }
+
+        // Startet wartende Anfragen, solange Kontingent frei ist. Wird nach jedem enqueue und
+        // release aufgerufen, damit keine Anfrage trotz freiem Kontingent liegen bleibt.
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (waiting) {
+                    if (waiting.isEmpty() || !permits.tryAcquire()) {
+                        return;
+                    }
+                    next = waiting.poll();
+                }
+                next.run();
+            }
+        }
+    }
+}
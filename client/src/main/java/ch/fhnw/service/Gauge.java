@@ -0,0 +1,18 @@
+package ch.fhnw.service;
+
+import java.util.function.LongSupplier;
+
+// Ein Wert, der erst beim Auslesen über JMX bestimmt wird, z.B. die Länge einer Warteschlange.
+public class Gauge implements GaugeMBean {
+
+    private final LongSupplier value;
+
+    public Gauge(LongSupplier value) {
+        this.value = value;
+    }
+
+    @Override
+    public long getValue() {
+        return value.getAsLong();
+    }
+}
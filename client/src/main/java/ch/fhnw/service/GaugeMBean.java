@@ -0,0 +1,6 @@
+package ch.fhnw.service;
+
+public interface GaugeMBean {
+
+    long getValue();
+}
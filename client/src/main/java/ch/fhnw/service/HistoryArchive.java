@@ -0,0 +1,222 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Export und Import der kompletten History eines Besitzers.
+// JSON entspricht dem alten Dateiformat (owner -> contact -> entries).
+// Das Binärarchiv enthält ein Wörterbuch der Kontaktnamen und die Einträge im
+// BinaryHistoryFormat, optional in Deflater-komprimierten Blöcken:
+//   'C' 'H' 'A' <version> <flags> <owner> <anzahl kontakte> <kontakte...> <blöcke...> 0
+//   Block: varint Rohlänge, varint gespeicherte Länge, Daten
+//   Eintrag im Block: varint Kontakt-Nummer, danach der Eintrag wie in einer Binär-Shard
+public class HistoryArchive {
+
+    private static final byte[] MAGIC = {'C', 'H', 'A', 1};
+    private static final int FLAG_COMPRESSED = 1;
+    private static final int BLOCK_BYTES = 64 * 1024;
+    // Ein Block wird geschrieben, sobald er BLOCK_BYTES erreicht, er enthält also höchstens einen Eintrag mehr
+    private static final int MAX_BLOCK_BYTES = BLOCK_BYTES + BinaryHistoryFormat.MAX_RECORD_BYTES + 32;
+
+    private final HistoryStore store;
+    private final ObjectWriter prettyWriter = Json.MAPPER.writerWithDefaultPrettyPrinter();
+    private final BinaryHistoryFormat binary = new BinaryHistoryFormat();
+
+    public HistoryArchive(HistoryStore store) {
+        this.store = store;
+    }
+
+    public void exportJson(String owner, Path file) throws IOException {
+        Map<String, List<ChatEntry>> conversations = new LinkedHashMap<>();
+        for (String contact : store.loadContacts(owner)) {
+            conversations.put(contact, store.loadConversation(owner, contact));
+        }
+        prettyWriter.writeValue(file.toFile(), Map.of(owner, conversations));
+    }
+
+    // Importierte Einträge werden nach Timestamp einsortiert; ein zweiter Import derselben Datei erzeugt Duplikate.
+    public int importJson(Path file) throws IOException {
+        Map<String, Map<String, List<ChatEntry>>> data = Json.MAPPER.readValue(file.toFile(), new TypeReference<>() {});
+        int imported = 0;
+        for (Map.Entry<String, Map<String, List<ChatEntry>>> owner : data.entrySet()) {
+            List<ChatEntry> entries = new ArrayList<>();
+            for (Map.Entry<String, List<ChatEntry>> conversation : owner.getValue().entrySet()) {
+                for (ChatEntry entry : conversation.getValue()) {
+                    entry.setContact(conversation.getKey());
+                    entries.add(entry);
+                }
+            }
+            store.importAll(owner.getKey(), entries);
+            imported += entries.size();
+        }
+        return imported;
+    }
+
+    public void exportBinary(String owner, Path file, boolean compress) throws IOException {
+        List<String> contacts = store.loadContacts(owner);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(MAGIC);
+            out.write(compress ? FLAG_COMPRESSED : 0);
+            writeString(out, owner);
+            BinaryHistoryFormat.writeVarint(out, contacts.size());
+            for (String contact : contacts) {
+                writeString(out, contact);
+            }
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_BYTES + 1024);
+                for (int id = 0; id < contacts.size(); id++) {
+                    for (ChatEntry entry : store.loadConversation(owner, contacts.get(id))) {
+                        BinaryHistoryFormat.writeVarint(block, id);
+                        binary.writeRecord(entry, block);
+                        if (block.size() >= BLOCK_BYTES) {
+                            writeBlock(out, block, deflater);
+                        }
+                    }
+                }
+                writeBlock(out, block, deflater);
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            BinaryHistoryFormat.writeVarint(out, 0);
+        }
+    }
+
+    public int importBinary(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() < MAGIC.length + 1) {
+            throw new IOException("Kein History-Archiv: " + file.getFileName());
+        }
+        buffer.get(magic);
+        if (!ByteBuffer.wrap(magic).equals(ByteBuffer.wrap(MAGIC))) {
+            throw new IOException("Kein History-Archiv: " + file.getFileName());
+        }
+        boolean compressed = (buffer.get() & FLAG_COMPRESSED) != 0;
+        Inflater inflater = compressed ? new Inflater() : null;
+        List<ChatEntry> entries = new ArrayList<>();
+        String owner;
+        try {
+            owner = readString(buffer);
+            // Jeder Kontakt braucht mindestens ein Byte
+            int contactCount = checkLength(BinaryHistoryFormat.readVarint(buffer), buffer.remaining());
+            List<String> contacts = new ArrayList<>(contactCount);
+            for (int i = 0; i < contactCount; i++) {
+                contacts.add(readString(buffer));
+            }
+            while (true) {
+                int rawLength = checkLength(BinaryHistoryFormat.readVarint(buffer), MAX_BLOCK_BYTES);
+                if (rawLength == 0) {
+                    break;
+                }
+                int storedLength = checkLength(BinaryHistoryFormat.readVarint(buffer), buffer.remaining());
+                if (!compressed && storedLength != rawLength) {
+                    throw new IOException("Archiv beschädigt");
+                }
+                byte[] stored = new byte[storedLength];
+                buffer.get(stored);
+                ByteBuffer block = ByteBuffer.wrap(compressed ? inflate(inflater, stored, rawLength) : stored);
+                while (block.hasRemaining()) {
+                    long id = BinaryHistoryFormat.readVarint(block);
+                    if (id < 0 || id >= contacts.size()) {
+                        throw new IOException("Ungültige Kontakt-Nummer " + id + " im Archiv");
+                    }
+                    entries.add(binary.readRecord(block, contacts.get((int) id)));
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Unvollständiges History-Archiv: " + file.getFileName(), e);
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+        store.importAll(owner, entries);
+        return entries.size();
+    }
+
+    // Längen stammen aus der Datei und werden vor dem Anlegen eines Arrays geprüft
+    private static int checkLength(long length, int max) throws IOException {
+        if (length < 0 || length > max) {
+            throw new IOException("Archiv beschädigt");
+        }
+        return (int) length;
+    }
+
+    private static void writeBlock(OutputStream out, ByteArrayOutputStream block, Deflater deflater) throws IOException {
+        if (block.size() == 0) {
+            return;
+        }
+        byte[] raw = block.toByteArray();
+        block.reset();
+        byte[] stored = raw;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            stored = compressed.toByteArray();
+        }
+        BinaryHistoryFormat.writeVarint(out, raw.length);
+        BinaryHistoryFormat.writeVarint(out, stored.length);
+        out.write(stored);
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] stored, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored);
+        byte[] raw = new byte[rawLength];
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, rawLength - length);
+                if (read == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength) {
+                throw new IOException("Unvollständiger Archiv-Block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Defekter Archiv-Block: " + e.getMessage(), e);
+        }
+        return raw;
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        BinaryHistoryFormat.writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[checkLength(BinaryHistoryFormat.readVarint(buffer), buffer.remaining())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
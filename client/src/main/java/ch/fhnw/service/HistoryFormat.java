@@ -0,0 +1,32 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Kodierung der Einträge in einer History-Shard. Der Offset-Index zeigt auf den Anfang
+// jedes Eintrags, deshalb muss sich jeder Eintrag einzeln lesen lassen.
+public interface HistoryFormat {
+
+    HistoryFormat JSON_LINES = new JsonLinesFormat();
+    HistoryFormat BINARY = new BinaryHistoryFormat();
+
+    List<HistoryFormat> ALL = List.of(JSON_LINES, BINARY);
+
+    String fileSuffix();
+
+    // Wird an den Anfang jeder neuen Shard geschrieben (darf leer sein).
+    byte[] fileHeader();
+
+    void writeRecord(ChatEntry entry, OutputStream out) throws IOException;
+
+    // Liest den Eintrag an der aktuellen Position und setzt die Position direkt dahinter.
+    // Ein unvollständiger Eintrag am Dateiende führt zu einer EOFException.
+    ChatEntry readRecord(ByteBuffer buffer, String contact) throws IOException;
+
+    // Position des nächsten lesbaren Eintrags nach einem defekten Eintrag ab from, -1 falls keiner.
+    int skipCorrupt(ByteBuffer buffer, int from);
+}
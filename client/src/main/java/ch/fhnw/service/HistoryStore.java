@@ -0,0 +1,889 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.model.HistoryRecord;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+// Die History liegt in einem Verzeichnis mit einem Unterordner pro Besitzer. Jede Unterhaltung
+// ist eine eigene Shard-Datei (Einträge werden nur angehängt), dazu kommt ein kleines Manifest
+// mit der Kontaktliste. Ein Kontaktwechsel liest so nur die eine Shard.
+// Wie die Einträge in der Shard kodiert sind, bestimmt das HistoryFormat.
+// Pro Besitzer gibt es zusätzlich einen Suchindex (search.idx), der erst bei der ersten Suche
+// geladen und danach bei jedem append mitgeführt wird.
+public class HistoryStore {
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String SEARCH_INDEX = "search.idx";
+    private static final String LAYOUT_MARKER = "layout";
+
+    private final Path legacyFile;
+    private final Path journalFile;
+    private final Path baseDir;
+    private final ObjectMapper mapper;
+    private final ObjectReader recordReader;
+    private final ConversationCache cache;
+    private final HistoryFormat format;
+
+    private final Map<String, TreeSet<String>> manifests = new HashMap<>();
+    private final Set<Path> openedShards = new HashSet<>();
+    private final Map<Path, SearchIndex> searchIndexes = new HashMap<>();
+    private final LatencyStats writeStats = Metrics.stats("History", "write");
+    private final LatencyStats readStats = Metrics.stats("History", "read");
+    private boolean initialized;
+
+    public HistoryStore() {
+        this(HistoryFormat.JSON_LINES);
+    }
+
+    public HistoryStore(HistoryFormat format) {
+        this(Path.of(System.getProperty("user.home"), ".chat-client-history.json"), format);
+    }
+
+    public HistoryStore(Path historyFile) {
+        this(historyFile, HistoryFormat.JSON_LINES);
+    }
+
+    public HistoryStore(Path historyFile, HistoryFormat format) {
+        this(historyFile, new ConversationCache(), format);
+    }
+
+    public HistoryStore(Path historyFile, ConversationCache cache, HistoryFormat format) {
+        String name = historyFile.getFileName().toString();
+        this.legacyFile = historyFile;
+        this.journalFile = historyFile.resolveSibling(name + "l");
+        this.baseDir = historyFile.resolveSibling(name.endsWith(".json")
+                ? name.substring(0, name.length() - ".json".length())
+                : name + ".d");
+        this.mapper = Json.MAPPER;
+        this.recordReader = mapper.readerFor(HistoryRecord.class);
+        this.cache = cache;
+        this.format = format;
+    }
+
+    public Path getBaseDir() {
+        return baseDir;
+    }
+
+    public ConversationCache getCache() {
+        return cache;
+    }
+
+    public HistoryFormat getFormat() {
+        return format;
+    }
+
+    public synchronized void append(String owner, String contact, boolean outgoing, String text) {
+        appendAll(owner, List.of(new ChatEntry(contact, outgoing, text, System.currentTimeMillis())));
+    }
+
+    // Schreibt mehrere Einträge mit einem Dateizugriff pro betroffener Shard.
+    public synchronized void appendAll(String owner, List<ChatEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ensureInitialized();
+        long start = System.nanoTime();
+        Map<String, List<ChatEntry>> byContact = new LinkedHashMap<>();
+        for (ChatEntry entry : entries) {
+            byContact.computeIfAbsent(entry.getContact(), key -> new ArrayList<>()).add(entry);
+        }
+        TreeSet<String> contacts = manifest(owner);
+        boolean manifestChanged = false;
+        for (Map.Entry<String, List<ChatEntry>> conversation : byContact.entrySet()) {
+            Path shard = shardFile(owner, conversation.getKey());
+            try {
+                openShard(owner, conversation.getKey());
+                List<ChatEntry> batch = conversation.getValue();
+                long lengthBefore = Files.exists(shard) ? Files.size(shard) : 0;
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                if (lengthBefore == 0) {
+                    records.write(format.fileHeader());
+                }
+                long[] offsets = new long[batch.size()];
+                long[] timestamps = new long[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    offsets[i] = lengthBefore + records.size();
+                    timestamps[i] = batch.get(i).getTimestamp();
+                    format.writeRecord(batch.get(i), records);
+                }
+                Files.write(shard, records.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                writeStats.addBytes(records.size());
+                ShardIndex.append(shard, lengthBefore, offsets, timestamps, batch.size(), lengthBefore + records.size());
+                indexForSearch(owner, conversation.getKey(), shard, batch);
+            } catch (Exception e) {
+                System.err.println("Konnte Chat-History nicht speichern: " + e.getMessage());
+                writeStats.recordError();
+                continue;
+            }
+            manifestChanged |= contacts.add(conversation.getKey());
+            for (ChatEntry entry : conversation.getValue()) {
+                cache.onAppend(owner, entry);
+            }
+        }
+        if (manifestChanged) {
+            try {
+                writeManifest(ownerDir(owner), contacts);
+            } catch (Exception e) {
+                System.err.println("Konnte Kontakt-Manifest nicht speichern: " + e.getMessage());
+            }
+        }
+        writeStats.recordSince(start);
+    }
+
+    // Sortiert Einträge (z.B. aus einem Archiv) nach Timestamp ein. Liegen sie alle hinter dem letzten
+    // Eintrag der Shard, wird wie gewohnt angehängt, sonst wird die Shard gemischt neu geschrieben,
+    // damit die Binärsuche über den Offset-Index stimmt. Eine beschädigte Shard wird nicht angefasst.
+    public synchronized void importAll(String owner, List<ChatEntry> entries) throws IOException {
+        ensureInitialized();
+        Map<String, List<ChatEntry>> byContact = new LinkedHashMap<>();
+        for (ChatEntry entry : entries) {
+            byContact.computeIfAbsent(entry.getContact(), key -> new ArrayList<>()).add(entry);
+        }
+        List<ChatEntry> appendable = new ArrayList<>();
+        boolean reopen = false;
+        for (Map.Entry<String, List<ChatEntry>> conversation : byContact.entrySet()) {
+            String contact = conversation.getKey();
+            List<ChatEntry> batch = new ArrayList<>(conversation.getValue());
+            batch.sort(Comparator.comparingLong(ChatEntry::getTimestamp));
+            Path shard = shardFile(owner, contact);
+            openShard(owner, contact);
+            if (Files.exists(shard) && !ShardIndex.isCurrent(shard)) {
+                rebuildIndex(shard, contact);
+            }
+            if (!Files.exists(shard) || batch.get(0).getTimestamp() >= ShardIndex.lastTimestamp(shard)) {
+                appendable.addAll(batch);
+                continue;
+            }
+            ShardScan scan = scanShard(shard, contact, format, true);
+            if (scan.corrupt) {
+                throw new IOException("History-Shard " + shard.getFileName() + " ist beschädigt, Import abgebrochen");
+            }
+            writeShard(shard, merge(scan.entries, batch));
+            cache.invalidate(owner, contact);
+            // Die Positionen im Suchindex verschieben sich, ein geladener Index wird neu aufgebaut
+            reopen |= dropSearchIndex(owner);
+        }
+        if (reopen) {
+            openIndex(owner);
+        }
+        appendAll(owner, appendable);
+    }
+
+    public synchronized List<ChatEntry> loadConversation(String owner, String contact) {
+        List<ChatEntry> cached = cache.getConversation(owner, contact);
+        if (cached != null) {
+            return cached;
+        }
+        ensureInitialized();
+        try {
+            openShard(owner, contact);
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht lesen: " + e.getMessage());
+        }
+        List<ChatEntry> conversation = readShard(shardFile(owner, contact), contact, format);
+        cache.putConversation(owner, contact, conversation);
+        return conversation;
+    }
+
+    // Lädt eine Seite der Unterhaltung: die letzten limit Einträge mit Timestamp < beforeTimestamp,
+    // aufsteigend sortiert. Gelesen wird über den Offset-Index nur der benötigte Teil der Shard.
+    public synchronized List<ChatEntry> loadConversation(String owner, String contact, long beforeTimestamp, int limit) {
+        List<ChatEntry> cached = cache.getPage(owner, contact, beforeTimestamp, limit);
+        if (cached != null) {
+            return cached;
+        }
+        ensureInitialized();
+        Path shard = shardFile(owner, contact);
+        try {
+            openShard(owner, contact);
+            if (!Files.exists(shard)) {
+                return new ArrayList<>();
+            }
+            if (!ShardIndex.isCurrent(shard)) {
+                rebuildIndex(shard, contact);
+            }
+            ShardIndex.Page page = ShardIndex.findPage(shard, beforeTimestamp, limit);
+            List<ChatEntry> entries = readPage(shard, contact, page);
+            if (beforeTimestamp == Long.MAX_VALUE) {
+                cache.putTail(owner, contact, entries, page.first());
+            }
+            return entries;
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht lesen: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Lädt den Suchindex eines Besitzers und holt nach, was seit dem Speichern dazugekommen ist.
+    // Danach hält append ihn aktuell; aufgerufen beim Login, damit die erste Suche nicht indiziert.
+    public synchronized void openSearchIndex(String owner) {
+        ensureInitialized();
+        try {
+            openIndex(owner);
+        } catch (Exception e) {
+            System.err.println("Konnte Suchindex nicht aufbauen: " + e.getMessage());
+        }
+    }
+
+    // Volltextsuche über alle Unterhaltungen eines Besitzers, beste Treffer zuerst.
+    // Die Texte werden pro Shard in einem Durchgang gelesen.
+    public synchronized List<SearchHit> search(String owner, String query, int limit) {
+        ensureInitialized();
+        List<SearchHit> result = new ArrayList<>();
+        try {
+            List<SearchHit> hits = openIndex(owner).query(query, limit);
+            Map<String, List<Integer>> positions = new LinkedHashMap<>();
+            for (SearchHit hit : hits) {
+                positions.computeIfAbsent(hit.contact(), key -> new ArrayList<>()).add(hit.position());
+            }
+            Map<String, Map<Integer, String>> messages = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> contact : positions.entrySet()) {
+                int[] sorted = contact.getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+                Path shard = shardFile(owner, contact.getKey());
+                List<ChatEntry> entries = readPage(shard, contact.getKey(), ShardIndex.select(shard, sorted));
+                Map<Integer, String> byPosition = new HashMap<>();
+                for (int i = 0; i < entries.size(); i++) {
+                    byPosition.put(sorted[i], entries.get(i).getMessage());
+                }
+                messages.put(contact.getKey(), byPosition);
+            }
+            for (SearchHit hit : hits) {
+                String message = messages.get(hit.contact()).get(hit.position());
+                result.add(new SearchHit(hit.contact(), hit.position(), hit.timestamp(), hit.score(), message));
+            }
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht durchsuchen: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private SearchIndex openIndex(String owner) throws IOException {
+        SearchIndex index = searchIndex(owner);
+        if (!catchUp(owner, index)) {
+            index = new SearchIndex();
+            searchIndexes.put(ownerDir(owner), index);
+            catchUp(owner, index);
+        }
+        return index;
+    }
+
+    // Speichert geänderte Suchindizes. Die Shards selbst sind nach jedem append bereits geschrieben.
+    public synchronized void close() {
+        for (Map.Entry<Path, SearchIndex> index : searchIndexes.entrySet()) {
+            if (!index.getValue().isDirty()) {
+                continue;
+            }
+            try {
+                Files.createDirectories(index.getKey());
+                index.getValue().save(index.getKey().resolve(SEARCH_INDEX));
+            } catch (Exception e) {
+                System.err.println("Konnte Suchindex nicht speichern: " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized List<String> loadContacts(String owner) {
+        ensureInitialized();
+        return new ArrayList<>(manifest(owner));
+    }
+
+    // Repariert beschädigte Shards: sie werden nur mit den lesbaren Einträgen neu geschrieben,
+    // nachdem das Original als .corrupt-Kopie gesichert ist. Intakte Shards bleiben unverändert.
+    public synchronized void compact() {
+        ensureInitialized();
+        for (String owner : listOwners()) {
+            boolean reopen = false;
+            for (String contact : manifest(owner)) {
+                reopen |= compactShard(owner, contact);
+            }
+            if (reopen) {
+                openSearchIndex(owner);
+            }
+        }
+    }
+
+    // Gibt true zurück, wenn dabei ein geladener Suchindex verworfen wurde.
+    private boolean compactShard(String owner, String contact) {
+        Path shard = shardFile(owner, contact);
+        try {
+            openShard(owner, contact);
+            if (!Files.exists(shard)) {
+                return false;
+            }
+            ShardScan scan = scanShard(shard, contact, format, true);
+            if (!scan.corrupt) {
+                return false;
+            }
+            quarantine(shard);
+            writeShard(shard, scan.entries);
+            cache.invalidate(owner, contact);
+            // Verworfene Einträge verschieben die Positionen, der Index muss neu aufgebaut werden
+            return dropSearchIndex(owner);
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht kompaktieren: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Gibt true zurück, wenn der Index geladen war.
+    private boolean dropSearchIndex(String owner) throws IOException {
+        Files.deleteIfExists(ownerDir(owner).resolve(SEARCH_INDEX));
+        return searchIndexes.remove(ownerDir(owner)) != null;
+    }
+
+    // Stabil: bei gleichem Timestamp stehen die vorhandenen Einträge vor den neuen.
+    private static List<ChatEntry> merge(List<ChatEntry> existing, List<ChatEntry> added) {
+        List<ChatEntry> merged = new ArrayList<>(existing.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < existing.size() || j < added.size()) {
+            if (j == added.size() || i < existing.size()
+                    && existing.get(i).getTimestamp() <= added.get(j).getTimestamp()) {
+                merged.add(existing.get(i++));
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    // Nimmt frisch angehängte Einträge in einen bereits geladenen Suchindex auf. Passt die
+    // Position nicht (z.B. Index veraltet), holt die nächste Suche die Einträge nach.
+    private void indexForSearch(String owner, String contact, Path shard, List<ChatEntry> batch) throws IOException {
+        SearchIndex index = searchIndexes.get(ownerDir(owner));
+        if (index == null || !ShardIndex.isCurrent(shard)) {
+            return;
+        }
+        int position = ShardIndex.count(shard) - batch.size();
+        if (position != index.indexedCount(contact)) {
+            return;
+        }
+        for (ChatEntry entry : batch) {
+            index.add(contact, position++, entry);
+        }
+    }
+
+    private SearchIndex searchIndex(String owner) {
+        Path dir = ownerDir(owner);
+        SearchIndex index = searchIndexes.get(dir);
+        if (index != null) {
+            return index;
+        }
+        index = new SearchIndex();
+        Path file = dir.resolve(SEARCH_INDEX);
+        if (Files.exists(file)) {
+            try {
+                index = SearchIndex.load(file);
+            } catch (Exception e) {
+                System.err.println("Konnte Suchindex nicht lesen, er wird neu aufgebaut: " + e.getMessage());
+            }
+        }
+        searchIndexes.put(dir, index);
+        return index;
+    }
+
+    // Indiziert pro Shard die Einträge nach der letzten indizierten Position. Gibt false zurück,
+    // wenn eine Shard weniger Einträge hat als indiziert sind; dann muss neu aufgebaut werden.
+    private boolean catchUp(String owner, SearchIndex index) throws IOException {
+        for (String contact : manifest(owner)) {
+            Path shard = shardFile(owner, contact);
+            openShard(owner, contact);
+            if (!Files.exists(shard)) {
+                continue;
+            }
+            if (!ShardIndex.isCurrent(shard)) {
+                rebuildIndex(shard, contact);
+            }
+            int count = ShardIndex.count(shard);
+            int indexed = index.indexedCount(contact);
+            if (count < indexed) {
+                return false;
+            }
+            if (count == indexed) {
+                continue;
+            }
+            List<ChatEntry> entries = readPage(shard, contact, ShardIndex.range(shard, indexed, count));
+            for (ChatEntry entry : entries) {
+                index.add(contact, indexed++, entry);
+            }
+        }
+        return true;
+    }
+
+    private List<ChatEntry> readPage(Path shard, String contact, ShardIndex.Page page) throws IOException {
+        List<ChatEntry> entries = new ArrayList<>(page.size());
+        if (page.size() == 0) {
+            return entries;
+        }
+        long started = System.nanoTime();
+        long start = page.offsets()[0];
+        try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, page.endOffset() - start);
+            for (long offset : page.offsets()) {
+                mapped.position((int) (offset - start));
+                entries.add(format.readRecord(mapped, contact));
+            }
+        } catch (IOException e) {
+            readStats.recordError();
+            throw e;
+        }
+        readStats.recordSince(started);
+        readStats.addBytes(page.endOffset() - start);
+        return entries;
+    }
+
+    // Baut den Offset-Index aus der Shard neu auf; unlesbare Einträge werden nicht indiziert.
+    private ShardScan rebuildIndex(Path shard, String contact) throws IOException {
+        ShardScan scan = scanShard(shard, contact, format, false);
+        ShardIndex.write(shard, scan.offsets, scan.timestamps, scan.count, scan.length);
+        return scan;
+    }
+
+    private List<ChatEntry> readShard(Path shard, String contact, HistoryFormat shardFormat) {
+        if (!Files.exists(shard)) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        try {
+            ShardScan scan = scanShard(shard, contact, shardFormat, true);
+            readStats.recordSince(start);
+            readStats.addBytes(scan.length);
+            // Defekte Bytes bei unveränderter Länge (der Index gilt dann noch) fallen erst hier auf
+            if (scan.corrupt) {
+                quarantine(shard);
+            }
+            return scan.entries;
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht lesen: " + e.getMessage());
+            readStats.recordError();
+            return new ArrayList<>();
+        }
+    }
+
+    // Liest alle Einträge einer Shard über ein Memory-Mapping und merkt sich deren Offsets.
+    private static ShardScan scanShard(Path shard, String contact, HistoryFormat shardFormat,
+                                       boolean keepEntries) throws IOException {
+        ShardScan scan = new ShardScan(keepEntries);
+        try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.READ)) {
+            scan.length = channel.size();
+            if (scan.length == 0) {
+                return scan;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, scan.length);
+            byte[] header = shardFormat.fileHeader();
+            if (scan.length < header.length) {
+                return scan;
+            }
+            if (!mapped.slice(0, header.length).equals(ByteBuffer.wrap(header))) {
+                throw new IOException("Unbekanntes History-Format in " + shard.getFileName());
+            }
+            mapped.position(header.length);
+            while (mapped.hasRemaining()) {
+                int start = mapped.position();
+                try {
+                    scan.add(start, shardFormat.readRecord(mapped, contact));
+                } catch (IOException | RuntimeException e) {
+                    int next = shardFormat.skipCorrupt(mapped, start);
+                    if (e instanceof EOFException && next < 0) {
+                        // Nur ein letzter Eintrag, der über das Dateiende hinausreicht, ist ein abgebrochener append
+                        scan.tornAt = start;
+                        break;
+                    }
+                    System.err.println("Defekter History-Eintrag in " + shard.getFileName()
+                            + " bei Offset " + start + " übersprungen: " + e.getMessage());
+                    scan.corrupt = true;
+                    if (next < 0) {
+                        break;
+                    }
+                    mapped.position(next);
+                }
+            }
+        }
+        return scan;
+    }
+
+    private void writeShard(Path shard, List<ChatEntry> entries) throws IOException {
+        Files.createDirectories(shard.getParent());
+        Path tmp = shard.resolveSibling(shard.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            out.write(format.fileHeader());
+            for (ChatEntry entry : entries) {
+                format.writeRecord(entry, out);
+            }
+        }
+        Files.move(tmp, shard, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ShardIndex.delete(shard);
+    }
+
+    // Beim ersten Zugriff pro Sitzung wird die Shard geprüft: liegt sie noch in einem anderen
+    // Format vor, wird sie umgeschrieben; ein unvollständiger Eintrag am Ende (Absturz mitten
+    // im append) wird abgeschnitten, damit neue Einträge nicht dahinter verloren gehen.
+    // Defekte Einträge mitten in der Shard bleiben stehen, der Index überspringt sie; vorher
+    // wird die Shard als .corrupt-Kopie gesichert.
+    private void openShard(String owner, String contact) throws IOException {
+        Path shard = shardFile(owner, contact);
+        if (!openedShards.add(shard)) {
+            return;
+        }
+        Files.createDirectories(shard.getParent());
+        if (!Files.exists(shard)) {
+            convertFromOtherFormat(owner, contact);
+        }
+        if (!Files.exists(shard) || ShardIndex.isCurrent(shard)) {
+            return;
+        }
+        ShardScan scan = rebuildIndex(shard, contact);
+        if (scan.corrupt) {
+            quarantine(shard);
+        }
+        if (scan.tornAt >= 0) {
+            try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.WRITE)) {
+                channel.truncate(scan.tornAt);
+            }
+            ShardIndex.write(shard, scan.offsets, scan.timestamps, scan.count, scan.tornAt);
+        }
+    }
+
+    // Sichert eine beschädigte Shard als <shard>.corrupt (bzw. .corrupt.1 usw.), außer es gibt schon
+    // eine gleiche Kopie. Die Shard selbst wird dabei nicht verändert.
+    private static void quarantine(Path shard) throws IOException {
+        Path copy = shard.resolveSibling(shard.getFileName() + ".corrupt");
+        for (int i = 1; Files.exists(copy); i++) {
+            if (Files.mismatch(shard, copy) == -1) {
+                return;
+            }
+            copy = shard.resolveSibling(shard.getFileName() + ".corrupt." + i);
+        }
+        Files.copy(shard, copy);
+        System.err.println("History-Shard " + shard.getFileName() + " ist beschädigt, Kopie unter " + copy.getFileName());
+    }
+
+    private void convertFromOtherFormat(String owner, String contact) throws IOException {
+        for (HistoryFormat other : HistoryFormat.ALL) {
+            if (other == format) {
+                continue;
+            }
+            Path otherShard = ownerDir(owner).resolve(fileName(contact) + other.fileSuffix());
+            if (Files.exists(otherShard)) {
+                writeShard(shardFile(owner, contact), readShard(otherShard, contact, other));
+                ShardIndex.delete(otherShard);
+                markMigrated(otherShard);
+                return;
+            }
+        }
+    }
+
+    private TreeSet<String> manifest(String owner) {
+        TreeSet<String> contacts = manifests.get(owner);
+        if (contacts != null) {
+            return contacts;
+        }
+        contacts = new TreeSet<>();
+        Path file = ownerDir(owner).resolve(MANIFEST);
+        if (Files.exists(file)) {
+            try {
+                contacts.addAll(mapper.readValue(file.toFile(), new TypeReference<List<String>>() {}));
+            } catch (Exception e) {
+                System.err.println("Konnte Kontakt-Manifest nicht lesen: " + e.getMessage());
+            }
+        }
+        manifests.put(owner, contacts);
+        return contacts;
+    }
+
+    private void writeManifest(Path dir, TreeSet<String> contacts) throws IOException {
+        Path file = dir.resolve(MANIFEST);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(MANIFEST + ".tmp");
+        mapper.writeValue(tmp.toFile(), new ArrayList<>(contacts));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<String> listOwners() {
+        List<String> owners = new ArrayList<>();
+        if (!Files.isDirectory(baseDir)) {
+            return owners;
+        }
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            dirs.filter(Files::isDirectory)
+                    .map(dir -> decodeFileName(dir.getFileName().toString()))
+                    .forEach(owners::add);
+        } catch (IOException e) {
+            System.err.println("Konnte History-Verzeichnis nicht lesen: " + e.getMessage());
+        }
+        return owners;
+    }
+
+    private Path ownerDir(String owner) {
+        return baseDir.resolve(fileName(owner));
+    }
+
+    private Path shardFile(String owner, String contact) {
+        return ownerDir(owner).resolve(fileName(contact) + format.fileSuffix());
+    }
+
+    // Benutzernamen kommen vom Server, deshalb werden sie für Dateinamen kodiert. Großbuchstaben
+    // werden als ^ plus Kleinbuchstabe geschrieben, damit "Bob" und "bob" auch auf Dateisystemen
+    // ohne Unterscheidung der Groß-/Kleinschreibung verschiedene Dateien sind.
+    private static String fileName(String name) {
+        String encoded = URLEncoder.encode(name, StandardCharsets.UTF_8)
+                .replace(".", "%2E")
+                .replace("*", "%2A");
+        StringBuilder result = new StringBuilder(encoded.length() + 8);
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '%') {
+                result.append(c).append(encoded.substring(i + 1, i + 3).toLowerCase(Locale.ROOT));
+                i += 2;
+            } else if (c >= 'A' && c <= 'Z') {
+                result.append('^').append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    // ^ kommt in URL-kodierten Namen sonst nicht vor (es wird zu %5E).
+    private static String decodeFileName(String fileName) {
+        StringBuilder name = new StringBuilder(fileName.length());
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            if (c == '^' && i + 1 < fileName.length()) {
+                name.append(Character.toUpperCase(fileName.charAt(++i)));
+            } else {
+                name.append(c);
+            }
+        }
+        return URLDecoder.decode(name.toString(), StandardCharsets.UTF_8);
+    }
+
+    // Verzeichnisse ohne Marker stammen aus der Zeit, als Großbuchstaben unverändert im Dateinamen
+    // standen. Kodierte Namen enthalten keinen Punkt, alles ab dem ersten Punkt ist also Endung.
+    private void renameLegacyFileNames() throws IOException {
+        List<Path> ownerDirs;
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            ownerDirs = dirs.filter(Files::isDirectory).toList();
+        }
+        for (Path dir : ownerDirs) {
+            List<Path> files;
+            try (Stream<Path> list = Files.list(dir)) {
+                files = list.toList();
+            }
+            for (Path file : files) {
+                renameLegacy(file);
+            }
+            renameLegacy(dir);
+        }
+    }
+
+    private static void renameLegacy(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        String stem = dot < 0 ? name : name.substring(0, dot);
+        if (stem.equals(stem.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        String renamed = fileName(URLDecoder.decode(stem, StandardCharsets.UTF_8)) + name.substring(stem.length());
+        Files.move(file, file.resolveSibling(renamed));
+    }
+
+    // Fertig ist die Ablage erst mit dem Marker. Eine Migration läuft deshalb in ein temporäres
+    // Verzeichnis, das erst vollständig an seinen Platz verschoben wird; bricht sie ab, wird sie
+    // beim nächsten Start wiederholt.
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        try {
+            Path source = Files.exists(journalFile) ? journalFile : Files.exists(legacyFile) ? legacyFile : null;
+            if (Files.exists(baseDir.resolve(LAYOUT_MARKER))) {
+                // Abbruch nach dem Verschieben, aber vor dem Umbenennen der Quelle
+                if (source != null) {
+                    markMigrated(source);
+                }
+                return;
+            }
+            if (Files.isDirectory(baseDir)) {
+                // Ablage aus einer Version ohne Marker; liegt die Quelle noch da, ist die Migration damals
+                // gescheitert und wird jetzt um die vorhandenen Einträge herum einsortiert
+                renameLegacyFileNames();
+                if (source != null) {
+                    for (Map.Entry<String, Map<String, List<ChatEntry>>> owner : readSource(source).entrySet()) {
+                        importMissing(owner.getKey(), owner.getValue());
+                    }
+                }
+                Files.writeString(baseDir.resolve(LAYOUT_MARKER), "2\n");
+            } else {
+                Path tmp = baseDir.resolveSibling(baseDir.getFileName() + ".tmp");
+                deleteRecursively(tmp);
+                Files.createDirectories(tmp);
+                if (source != null) {
+                    writeShards(tmp, readSource(source));
+                }
+                Files.writeString(tmp.resolve(LAYOUT_MARKER), "2\n");
+                Files.move(tmp, baseDir, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (source != null) {
+                markMigrated(source);
+            }
+        } catch (Exception e) {
+            System.err.println("Konnte Chat-History nicht initialisieren: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Map<String, List<ChatEntry>>> readSource(Path source) throws IOException {
+        return source.equals(journalFile) ? readJournal() : readLegacyFile();
+    }
+
+    // Bisheriges Einzeldatei-Journal (eine HistoryRecord-Zeile pro Eintrag).
+    private Map<String, Map<String, List<ChatEntry>>> readJournal() throws IOException {
+        Map<String, Map<String, List<ChatEntry>>> data = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    HistoryRecord record = recordReader.readValue(line);
+                    data.computeIfAbsent(record.getOwner(), key -> new LinkedHashMap<>())
+                            .computeIfAbsent(record.getContact(), key -> new ArrayList<>())
+                            .add(record.toEntry());
+                } catch (IOException e) {
+                    System.err.println("Ungültige History-Zeile übersprungen: " + e.getMessage());
+                }
+            }
+        }
+        return data;
+    }
+
+    // Alte verschachtelte JSON-Datei (owner -> contact -> entries).
+    private Map<String, Map<String, List<ChatEntry>>> readLegacyFile() throws IOException {
+        Map<String, Map<String, List<ChatEntry>>> data =
+                mapper.readValue(legacyFile.toFile(), new TypeReference<>() {});
+        for (Map<String, List<ChatEntry>> conversations : data.values()) {
+            for (Map.Entry<String, List<ChatEntry>> conversation : conversations.entrySet()) {
+                for (ChatEntry entry : conversation.getValue()) {
+                    if (entry.getContact() == null) {
+                        entry.setContact(conversation.getKey());
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    private void writeShards(Path root, Map<String, Map<String, List<ChatEntry>>> data) throws IOException {
+        for (Map.Entry<String, Map<String, List<ChatEntry>>> owner : data.entrySet()) {
+            Path dir = root.resolve(fileName(owner.getKey()));
+            TreeSet<String> contacts = new TreeSet<>();
+            for (Map.Entry<String, List<ChatEntry>> conversation : owner.getValue().entrySet()) {
+                writeShard(dir.resolve(fileName(conversation.getKey()) + format.fileSuffix()), conversation.getValue());
+                contacts.add(conversation.getKey());
+            }
+            writeManifest(dir, contacts);
+        }
+    }
+
+    // Sortiert nur Einträge ein, die in der Shard noch fehlen, damit eine halb geschriebene
+    // frühere Migration keine Duplikate hinterlässt.
+    private void importMissing(String owner, Map<String, List<ChatEntry>> conversations) throws IOException {
+        List<ChatEntry> missing = new ArrayList<>();
+        for (Map.Entry<String, List<ChatEntry>> conversation : conversations.entrySet()) {
+            Set<String> present = new HashSet<>();
+            for (ChatEntry entry : loadConversation(owner, conversation.getKey())) {
+                present.add(entryKey(entry));
+            }
+            for (ChatEntry entry : conversation.getValue()) {
+                if (!present.contains(entryKey(entry))) {
+                    missing.add(entry);
+                }
+            }
+        }
+        importAll(owner, missing);
+    }
+
+    private static String entryKey(ChatEntry entry) {
+        return entry.getTimestamp() + (entry.isOutgoing() ? ">" : "<") + entry.getMessage();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    // Die alte Datei bleibt als Backup mit der Endung ".migrated" erhalten.
+    private static void markMigrated(Path file) throws IOException {
+        Files.move(file, file.resolveSibling(file.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Ergebnis eines Durchlaufs über eine Shard. tornAt ist der Anfang eines unvollständigen
+    // letzten Eintrags (sonst -1), corrupt zeigt an, dass Einträge übersprungen wurden.
+    private static final class ShardScan {
+        private final List<ChatEntry> entries;
+        private long[] offsets = new long[64];
+        private long[] timestamps = new long[64];
+        private int count;
+        private long length;
+        private long tornAt = -1;
+        private boolean corrupt;
+
+        private ShardScan(boolean keepEntries) {
+            this.entries = keepEntries ? new ArrayList<>() : null;
+        }
+
+        private void add(long offset, ChatEntry entry) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+            }
+            offsets[count] = offset;
+            timestamps[count] = entry.getTimestamp();
+            count++;
+            if (entries != null) {
+                entries.add(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.model.HistoryRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Einzelner Hintergrund-Thread, der History-Einträge sammelt und pro Commit-Fenster
+// mit einem einzigen appendAll auf die Platte schreibt (Group Commit).
+// Ist die Queue voll, blockiert submit, bis der Writer aufgeholt hat (Backpressure).
+public class HistoryWriter implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final long DEFAULT_COMMIT_WINDOW_MS = 50;
+
+    private static final HistoryRecord POISON = new HistoryRecord();
+
+    private final HistoryStore store;
+    private final BlockingQueue<HistoryRecord> queue;
+    private final long commitWindowMs;
+    private final Thread thread;
+    private final AtomicLong submitted = new AtomicLong();
+    private final Object writtenLock = new Object();
+    private long written;
+    // Einreichen hält die Lese-, close() die Schreibsperre: nach closed = true liegt garantiert
+    // kein Einreicher mehr zwischen Prüfung und Einreihen
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+    // Erst nach dem Leeren der Queue dürfen späte Einreicher direkt schreiben, sonst überholen
+    // sie ihre eigenen, noch eingereihten Einträge
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    public HistoryWriter(HistoryStore store) {
+        this(store, DEFAULT_QUEUE_CAPACITY, DEFAULT_COMMIT_WINDOW_MS);
+    }
+
+    public HistoryWriter(HistoryStore store, int queueCapacity, long commitWindowMs) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.commitWindowMs = commitWindowMs;
+        this.thread = new Thread(this::run, "history-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void submit(String owner, String contact, boolean outgoing, String text) {
+        submitAll(owner, List.of(new ChatEntry(contact, outgoing, text, System.currentTimeMillis())));
+    }
+
+    public void submitAll(String owner, List<ChatEntry> entries) {
+        boolean wasClosed;
+        closeLock.readLock().lock();
+        try {
+            wasClosed = closed;
+            if (!closed) {
+                int queued = enqueue(owner, entries);
+                if (queued == entries.size()) {
+                    return;
+                }
+                entries = entries.subList(queued, entries.size());
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        // Geschlossen, Writer tot oder unterbrochen: direkt schreiben statt verlieren
+        if (wasClosed) {
+            awaitDrained();
+        }
+        store.appendAll(owner, entries);
+    }
+
+    private void awaitDrained() {
+        try {
+            drained.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Liefert die Anzahl eingereihter Einträge; weniger als alle nur, wenn der Writer nicht mehr läuft.
+    private int enqueue(String owner, List<ChatEntry> entries) {
+        int queued = 0;
+        try {
+            for (ChatEntry entry : entries) {
+                HistoryRecord record = new HistoryRecord(owner, entry);
+                while (!queue.offer(record, commitWindowMs, TimeUnit.MILLISECONDS)) {
+                    if (!thread.isAlive()) {
+                        return queued;
+                    }
+                }
+                submitted.incrementAndGet();
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return queued;
+    }
+
+    // Wartet, bis alles, was vor dem Aufruf eingereicht wurde, geschrieben ist.
+    public void flush() {
+        long target = submitted.get();
+        synchronized (writtenLock) {
+            while (written < target && thread.isAlive()) {
+                try {
+                    writtenLock.wait(commitWindowMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Leert die Queue vollständig und beendet den Writer. Mehrfache Aufrufe sind harmlos.
+    @Override
+    public void close() {
+        boolean wasClosed;
+        closeLock.writeLock().lock();
+        try {
+            wasClosed = closed;
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (wasClosed) {
+            awaitDrained();
+            return;
+        }
+        try {
+            // Ist der Writer tot, wird die volle Queue nie leer; dann gleich selbst schreiben
+            while (!queue.offer(POISON, commitWindowMs, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    break;
+                }
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Was der Writer nicht mehr geschrieben hat; neue Einträge kommen nach closed nicht mehr dazu
+        List<HistoryRecord> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.remove(POISON);
+        try {
+            commit(rest);
+        } finally {
+            drained.countDown();
+        }
+    }
+
+    private void run() {
+        List<HistoryRecord> batch = new ArrayList<>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                HistoryRecord first = queue.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitWindowMs);
+                HistoryRecord next = first;
+                while (next != null) {
+                    if (next == POISON) {
+                        stop = true;
+                        queue.drainTo(batch);
+                        batch.remove(POISON);
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch);
+                    if (batch.remove(POISON)) {
+                        stop = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                }
+            } catch (InterruptedException e) {
+                stop = true;
+                queue.drainTo(batch);
+                batch.remove(POISON);
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<HistoryRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<ChatEntry>> byOwner = new LinkedHashMap<>();
+        for (HistoryRecord record : batch) {
+            byOwner.computeIfAbsent(record.getOwner(), key -> new ArrayList<>()).add(record.toEntry());
+        }
+        for (Map.Entry<String, List<ChatEntry>> owner : byOwner.entrySet()) {
+            store.appendAll(owner.getKey(), owner.getValue());
+        }
+        synchronized (writtenLock) {
+            written += batch.size();
+            writtenLock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+// Ein gemeinsamer ObjectMapper für Client, History und Outbox. Nach der Konfiguration ist er
+// threadsicher; Reader und Writer für die häufigen Typen werden einmal erzeugt und wiederverwendet,
+// statt bei jedem Aufruf den Typ neu aufzulösen.
+final class Json {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+    static final ObjectReader MESSAGE_READER = MAPPER.readerFor(Message.class);
+    static final ObjectWriter MESSAGE_WRITER = MAPPER.writerFor(Message.class);
+
+    private Json() {}
+}
@@ -0,0 +1,66 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Eine JSON-Zeile pro ChatEntry. Lesbar mit jedem Texteditor.
+public class JsonLinesFormat implements HistoryFormat {
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    public JsonLinesFormat() {
+        this.reader = Json.MAPPER.readerFor(ChatEntry.class);
+        this.writer = Json.MAPPER.writerFor(ChatEntry.class);
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".jsonl";
+    }
+
+    @Override
+    public byte[] fileHeader() {
+        return new byte[0];
+    }
+
+    @Override
+    public void writeRecord(ChatEntry entry, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(entry));
+        out.write('\n');
+    }
+
+    @Override
+    public ChatEntry readRecord(ByteBuffer buffer, String contact) throws IOException {
+        int start = buffer.position();
+        int end = indexOfNewline(buffer, start);
+        if (end < 0) {
+            throw new EOFException("Unvollständige History-Zeile");
+        }
+        byte[] line = new byte[end - start];
+        buffer.get(start, line);
+        buffer.position(end + 1);
+        return reader.readValue(line);
+    }
+
+    @Override
+    public int skipCorrupt(ByteBuffer buffer, int from) {
+        int end = indexOfNewline(buffer, from);
+        return end < 0 ? -1 : end + 1;
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package ch.fhnw.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Liest Server-Antworten in einem Durchgang direkt aus dem Body-Stream, ohne String und
+// ohne JsonNode-Baum. Die Antworten kommen in zwei Formen: als Objekt mit dem Array in einem
+// Feld (z.B. {"messages": [...]}) oder als blankes Array.
+final class JsonStreams {
+
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    private JsonStreams() {}
+
+    // Gibt die Elemente in Portionen von höchstens batchSize an sink weiter, sobald sie gelesen sind.
+    // Liefert die Anzahl der Elemente oder -1, wenn die Antwort keine der beiden Formen hat.
+    static <T> int readArray(JsonFactory factory, InputStream body, String field, ObjectReader elementReader,
+                             int batchSize, Consumer<List<T>> sink) throws IOException {
+        try (JsonParser parser = factory.createParser(body)) {
+            if (!moveToArray(parser, field)) {
+                return -1;
+            }
+            int count = 0;
+            List<T> batch = new ArrayList<>(Math.min(batchSize, 64));
+            JsonToken token;
+            while ((token = nextInArray(parser)) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                batch.add(elementReader.readValue(parser));
+                count++;
+                if (batch.size() >= batchSize) {
+                    sink.accept(batch);
+                    batch = new ArrayList<>(Math.min(batchSize, 64));
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+            }
+            return count;
+        }
+    }
+
+    // Namensliste ohne Duplikate in Server-Reihenfolge, oder null bei unbekannter Form.
+    // null-Elemente (wie auch Objekte und Arrays) werden übersprungen.
+    static List<String> readStringList(JsonFactory factory, InputStream body, String field) throws IOException {
+        try (JsonParser parser = factory.createParser(body)) {
+            if (!moveToArray(parser, field)) {
+                return null;
+            }
+            Set<String> values = new LinkedHashSet<>();
+            JsonToken token;
+            while ((token = nextInArray(parser)) != JsonToken.END_ARRAY) {
+                if (token.isStructStart()) {
+                    parser.skipChildren();
+                } else if (token != JsonToken.VALUE_NULL) {
+                    values.add(parser.getValueAsString());
+                }
+            }
+            return List.copyOf(values);
+        }
+    }
+
+    // Setzt den Parser auf den Anfang des Arrays. Andere Felder werden übersprungen, ohne sie zu lesen.
+    private static boolean moveToArray(JsonParser parser, String field) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return true;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        if (token == null) {
+            throw new EOFException("Antwort endet vorzeitig");
+        }
+        return false;
+    }
+
+    // Eine Antwort, die mitten im Array endet, ist ein Fehler und kein kürzeres Ergebnis.
+    private static JsonToken nextInArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new EOFException("Antwort endet mitten im Array");
+        }
+        return token;
+    }
+}
@@ -0,0 +1,144 @@
+package ch.fhnw.service;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Dauer-Histogramm mit festen Buckets plus Fehler- und Byte-Zähler. Aufgezeichnet wird nur über
+// LongAdder und LongAccumulator, die pro Thread gestreut zählen; auf dem Hot Path gibt es keine Sperre.
+// Perzentile sind deshalb nur so genau wie die Bucket-Grenzen.
+public class LatencyStats implements LatencyStatsMBean {
+
+    // Obergrenzen der Buckets in Millisekunden; der letzte Bucket nimmt alles darüber auf
+    private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000, 60_000};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            BOUNDS_NANOS[i] = BOUNDS_MILLIS[i] * 1_000_000;
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyStats() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void addBytes(long amount) {
+        bytes.add(amount);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getP50Millis() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public long getP95Millis() {
+        return percentile(0.95);
+    }
+
+    @Override
+    public long getP99Millis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public String getHistogram() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < buckets.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(i < BOUNDS_MILLIS.length ? "<=" + BOUNDS_MILLIS[i] + "ms" : ">" + BOUNDS_MILLIS[i - 1] + "ms")
+                    .append('=').append(buckets[i].sum());
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        errors.reset();
+        bytes.reset();
+        maxNanos.reset();
+    }
+
+    // Für den letzten Bucket gibt es keine Obergrenze, dann wird das Maximum gemeldet.
+    private long percentile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return (long) Math.ceil(getMaxMillis());
+    }
+}
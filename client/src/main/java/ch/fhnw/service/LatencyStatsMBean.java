@@ -0,0 +1,25 @@
+package ch.fhnw.service;
+
+// JMX-Sicht auf LatencyStats; Zeiten in Millisekunden, Perzentile als obere Grenze des Buckets.
+public interface LatencyStatsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    long getBytes();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    long getP50Millis();
+
+    long getP95Millis();
+
+    long getP99Millis();
+
+    String getHistogram();
+
+    void reset();
+}
@@ -0,0 +1,68 @@
+package ch.fhnw.service;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+// Laufzeit-Metriken des Clients. Jede Messgröße wird beim ersten Gebrauch als MBean unter
+// ch.fhnw.chatclient:type=<typ>,name=<name> registriert und ist so z.B. in jconsole sichtbar.
+public final class Metrics {
+
+    private static final String DOMAIN = "ch.fhnw.chatclient";
+    private static final ConcurrentMap<String, LatencyStats> STATS = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    public static LatencyStats stats(String type, String name) {
+        LatencyStats stats = STATS.get(type + '/' + name);
+        if (stats != null) {
+            return stats;
+        }
+        return STATS.computeIfAbsent(type + '/' + name, key -> {
+            LatencyStats created = new LatencyStats();
+            register(type, name, created);
+            return created;
+        });
+    }
+
+    // Ersetzt eine bestehende Gauge gleichen Namens, z.B. nach einem erneuten Start des UI.
+    public static void gauge(String type, String name, LongSupplier value) {
+        register(type, name, new Gauge(value));
+    }
+
+    public static void removeGauge(String type, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(type, name));
+        } catch (InstanceNotFoundException e) {
+            // schon entfernt oder nie registriert
+        } catch (JMException e) {
+            System.err.println("Metrik " + type + "/" + name + " konnte nicht entfernt werden: " + e.getMessage());
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    private static void register(String type, String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            try {
+                server.registerMBean(bean, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Metrik " + type + "/" + name + " konnte nicht registriert werden: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Ausgehende Nachrichten werden sofort in ein Journal geschrieben und danach im Hintergrund
+// gesendet. Pro Empfänger ist immer nur eine Nachricht unterwegs, damit die Reihenfolge
+// erhalten bleibt; verschiedene Empfänger werden parallel bedient. Schlägt das Senden fehl
+// (Server weg, Timeout), wird mit wachsendem Abstand erneut versucht. Lehnt der Server die
+// Nachricht ab (Antwort false, z.B. Empfänger offline), wird sofort aufgegeben.
+// Nicht zugestellte Nachrichten überleben einen Neustart und werden beim nächsten Login gesendet.
+// Aufgegebene Nachrichten bleiben ebenfalls im Journal, bis sie mit resend erneut eingereiht
+// oder mit dismiss verworfen werden.
+// Das Journal schreibt ein eigener Thread in Aufruf-Reihenfolge, damit submit (im FX-Thread)
+// und das Kompaktieren nicht unter der Sperre auf die Platte warten.
+public class Outbox implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 20;
+
+    private static final long MIN_RETRY_MILLIS = 1_000;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+    private static final double JITTER = 0.2;
+    // Ab so vielen erledigten Zeilen wird das Journal beim Leerlaufen neu geschrieben
+    private static final int COMPACT_THRESHOLD = 1_000;
+
+    public interface DeliveryListener {
+        // Wird nach bestätigter Zustellung aufgerufen (nicht im FX-Thread).
+        void delivered(OutboxMessage message, long deliveredAt);
+
+        // Wird aufgerufen, wenn der Server die Nachricht ablehnt (lastError ist dann null)
+        // oder nach maxAttempts Versuchen aufgegeben wird.
+        default void failed(OutboxMessage message, Throwable lastError) {
+        }
+    }
+
+    private final ChatService chatService;
+    private final Path journalFile;
+    private final DeliveryListener listener;
+    private final int maxAttempts;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ScheduledExecutorService retryScheduler;
+    private final ExecutorService journalWriter;
+
+    // Noch nicht zugestellte Nachrichten pro Besitzer und Empfänger, in Sende-Reihenfolge
+    private final Map<String, Map<String, ArrayDeque<OutboxMessage>>> pending = new HashMap<>();
+    // Aufgegebene Nachrichten pro Besitzer, nach Id
+    private final Map<String, Map<String, OutboxMessage>> failed = new HashMap<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final Map<String, Boolean> inFlight = new HashMap<>();
+    private String activeOwner;
+    private int completedLines;
+    private boolean closed;
+
+    public Outbox(ChatService chatService, DeliveryListener listener) {
+        this(chatService, Path.of(System.getProperty("user.home"), ".chat-client-outbox.jsonl"), listener,
+                DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public Outbox(ChatService chatService, Path journalFile, DeliveryListener listener, int maxAttempts) {
+        this.chatService = chatService;
+        this.journalFile = journalFile;
+        this.listener = listener;
+        this.maxAttempts = maxAttempts;
+        this.reader = Json.MAPPER.readerFor(OutboxMessage.class);
+        this.writer = Json.MAPPER.writerFor(OutboxMessage.class);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.journalWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "outbox-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        load();
+    }
+
+    // Nimmt eine Nachricht an und kehrt sofort zurück; gesendet wird, sobald owner eingeloggt ist.
+    public OutboxMessage submit(String owner, String recipient, String text) {
+        OutboxMessage message = new OutboxMessage(UUID.randomUUID().toString(), owner, recipient, text,
+                System.currentTimeMillis());
+        OutboxMessage next;
+        synchronized (this) {
+            appendToJournal(message);
+            queue(message);
+            next = takeNext(owner, recipient);
+        }
+        send(next);
+        return message;
+    }
+
+    // Beginnt mit dem Senden der Nachrichten von owner (nach dem Login, Token ist gesetzt).
+    public void start(String owner) {
+        List<OutboxMessage> due = new ArrayList<>();
+        synchronized (this) {
+            activeOwner = owner;
+            for (String recipient : new ArrayList<>(pending.getOrDefault(owner, Map.of()).keySet())) {
+                OutboxMessage next = takeNext(owner, recipient);
+                if (next != null) {
+                    due.add(next);
+                }
+            }
+        }
+        due.forEach(this::send);
+    }
+
+    // Nach dem Logout: laufende Anfragen dürfen noch fertig werden, neue werden nicht gestartet.
+    public synchronized void stop() {
+        activeOwner = null;
+    }
+
+    public synchronized List<OutboxMessage> getPending(String owner) {
+        List<OutboxMessage> messages = new ArrayList<>();
+        for (ArrayDeque<OutboxMessage> queue : pending.getOrDefault(owner, Map.of()).values()) {
+            messages.addAll(queue);
+        }
+        return messages;
+    }
+
+    public synchronized List<OutboxMessage> getFailed(String owner) {
+        return new ArrayList<>(failed.getOrDefault(owner, Map.of()).values());
+    }
+
+    // Reiht eine aufgegebene Nachricht hinten wieder ein; die Versuche zählen von vorn.
+    public boolean resend(String owner, String id) {
+        OutboxMessage next;
+        synchronized (this) {
+            OutboxMessage message = removeFailed(owner, id);
+            if (message == null) {
+                return false;
+            }
+            OutboxMessage queued = copy(message, false);
+            appendToJournal(queued);
+            queue(queued);
+            next = takeNext(owner, queued.getRecipient());
+        }
+        send(next);
+        return true;
+    }
+
+    // Verwirft eine aufgegebene Nachricht endgültig.
+    public synchronized boolean dismiss(String owner, String id) {
+        OutboxMessage message = removeFailed(owner, id);
+        if (message == null) {
+            return false;
+        }
+        markDone(message);
+        return true;
+    }
+
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (Map<String, ArrayDeque<OutboxMessage>> byRecipient : pending.values()) {
+            for (ArrayDeque<OutboxMessage> queue : byRecipient.values()) {
+                count += queue.size();
+            }
+        }
+        return count;
+    }
+
+    // Wartet, bis die eingereihten Journal-Zeilen geschrieben sind.
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            activeOwner = null;
+            retryScheduler.shutdownNow();
+            journalWriter.shutdown();
+        }
+        try {
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Nächste Nachricht an recipient, falls gerade keine unterwegs ist; markiert sie als unterwegs.
+    // Gesendet wird erst nach dem Verlassen der Sperre (siehe send).
+    private OutboxMessage takeNext(String owner, String recipient) {
+        String key = owner + '\n' + recipient;
+        ArrayDeque<OutboxMessage> queue = pending.getOrDefault(owner, Map.of()).get(recipient);
+        if (closed || !owner.equals(activeOwner) || queue == null || queue.isEmpty() || inFlight.containsKey(key)) {
+            return null;
+        }
+        inFlight.put(key, true);
+        return queue.peekFirst();
+    }
+
+    // Ohne Sperre aufrufen: eine schon fertige Future (z.B. kein Token) ruft onResult und
+    // damit den Listener sofort im aufrufenden Thread auf.
+    private void send(OutboxMessage message) {
+        if (message == null) {
+            return;
+        }
+        String key = message.getOwner() + '\n' + message.getRecipient();
+        CompletableFuture<Boolean> sent;
+        try {
+            sent = chatService.sendMessageAsync(message.getRecipient(), message.getMessage());
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((accepted, error) -> onResult(key, message, accepted, error));
+    }
+
+    // Der Listener wird außerhalb der Sperre aufgerufen, er darf z.B. blockierend in die History schreiben.
+    private void onResult(String key, OutboxMessage message, Boolean accepted, Throwable error) {
+        long now = System.currentTimeMillis();
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean delivered = error == null && Boolean.TRUE.equals(accepted);
+        boolean gaveUp = false;
+        synchronized (this) {
+            if (!delivered) {
+                int attempt = attempts.merge(message.getId(), 1, Integer::sum);
+                // Ein false vom Server ist eine Antwort, kein Übertragungsfehler; Wiederholen ändert daran nichts
+                if (error != null && attempt < maxAttempts) {
+                    inFlight.remove(key);
+                    scheduleRetry(message, attempt);
+                    return;
+                }
+                System.err.println("Nachricht an " + message.getRecipient() + (error != null
+                        ? " nach " + attempt + " Versuchen verworfen." : " vom Server abgelehnt."));
+                gaveUp = true;
+                fail(message);
+            } else {
+                complete(message);
+            }
+        }
+        if (gaveUp) {
+            listener.failed(message, cause);
+        } else {
+            listener.delivered(message, now);
+        }
+        // Erst jetzt freigeben, damit der Listener die Nachrichten eines Empfängers in Reihenfolge sieht
+        OutboxMessage next;
+        synchronized (this) {
+            inFlight.remove(key);
+            next = takeNext(message.getOwner(), message.getRecipient());
+        }
+        send(next);
+    }
+
+    private void scheduleRetry(OutboxMessage message, int attempt) {
+        if (closed) {
+            return;
+        }
+        long delay = Math.min(MAX_RETRY_MILLIS, MIN_RETRY_MILLIS << Math.min(attempt - 1, 16));
+        delay = (long) (delay * (1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER)));
+        retryScheduler.schedule(() -> retry(message.getOwner(), message.getRecipient()), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void retry(String owner, String recipient) {
+        OutboxMessage next;
+        synchronized (this) {
+            next = takeNext(owner, recipient);
+        }
+        send(next);
+    }
+
+    // Entfernt die Nachricht aus der Warteschlange und vermerkt das im Journal.
+    private void complete(OutboxMessage message) {
+        dequeue(message);
+        markDone(message);
+    }
+
+    private void fail(OutboxMessage message) {
+        dequeue(message);
+        OutboxMessage failedCopy = copy(message, true);
+        failed.computeIfAbsent(message.getOwner(), key -> new LinkedHashMap<>()).put(message.getId(), failedCopy);
+        appendToJournal(failedCopy);
+    }
+
+    private void dequeue(OutboxMessage message) {
+        attempts.remove(message.getId());
+        Map<String, ArrayDeque<OutboxMessage>> byRecipient = pending.get(message.getOwner());
+        ArrayDeque<OutboxMessage> queue = byRecipient.get(message.getRecipient());
+        queue.pollFirst();
+        if (queue.isEmpty()) {
+            byRecipient.remove(message.getRecipient());
+        }
+    }
+
+    private OutboxMessage removeFailed(String owner, String id) {
+        Map<String, OutboxMessage> byId = failed.get(owner);
+        OutboxMessage message = byId != null ? byId.remove(id) : null;
+        if (byId != null && byId.isEmpty()) {
+            failed.remove(owner);
+        }
+        return message;
+    }
+
+    private void markDone(OutboxMessage message) {
+        OutboxMessage done = new OutboxMessage(message.getId(), message.getOwner(), message.getRecipient(), null,
+                message.getCreatedAt());
+        done.setDelivered(true);
+        appendToJournal(done);
+        completedLines++;
+        if (completedLines >= COMPACT_THRESHOLD && getPendingCount() == 0) {
+            completedLines = 0;
+            // Die Zeilen davor sind schon eingereiht, die danach landen in der neuen Datei
+            List<OutboxMessage> snapshot = snapshot();
+            journal(() -> rewriteJournal(snapshot));
+        }
+    }
+
+    // Journal-Zeilen werden erst im Journal-Thread geschrieben, deshalb eigene Objekte statt umschalten.
+    private static OutboxMessage copy(OutboxMessage message, boolean failed) {
+        OutboxMessage copy = new OutboxMessage(message.getId(), message.getOwner(), message.getRecipient(),
+                message.getMessage(), message.getCreatedAt());
+        copy.setFailed(failed);
+        return copy;
+    }
+
+    private void queue(OutboxMessage message) {
+        pending.computeIfAbsent(message.getOwner(), key -> new LinkedHashMap<>())
+                .computeIfAbsent(message.getRecipient(), key -> new ArrayDeque<>())
+                .addLast(message);
+    }
+
+    // Unter der Sperre aufrufen, damit die Zeilen in der Reihenfolge der Änderungen eingereiht werden.
+    private void appendToJournal(OutboxMessage message) {
+        journal(() -> {
+            try (BufferedWriter out = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(writer.writeValueAsString(message));
+                out.newLine();
+            } catch (IOException e) {
+                System.err.println("Konnte Outbox nicht speichern: " + e.getMessage());
+            }
+        });
+    }
+
+    private void journal(Runnable task) {
+        try {
+            journalWriter.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Nach close: lieber im aufrufenden Thread schreiben als die Zeile verlieren
+            task.run();
+        }
+    }
+
+    private List<OutboxMessage> snapshot() {
+        List<OutboxMessage> messages = new ArrayList<>();
+        for (Map<String, ArrayDeque<OutboxMessage>> byRecipient : pending.values()) {
+            for (ArrayDeque<OutboxMessage> queue : byRecipient.values()) {
+                messages.addAll(queue);
+            }
+        }
+        for (Map<String, OutboxMessage> byId : failed.values()) {
+            messages.addAll(byId.values());
+        }
+        return messages;
+    }
+
+    // Liest das Journal und behält nur die Nachrichten ohne Erledigt-Zeile. Es zählt jeweils
+    // die letzte Zeile einer Nachricht: offen, aufgegeben oder erledigt.
+    private void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        Map<String, OutboxMessage> open = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    OutboxMessage message = reader.readValue(line);
+                    open.remove(message.getId());
+                    if (!message.isDelivered()) {
+                        open.put(message.getId(), message);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Ungültige Outbox-Zeile übersprungen: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Konnte Outbox nicht lesen: " + e.getMessage());
+            return;
+        }
+        for (OutboxMessage message : open.values()) {
+            if (message.isFailed()) {
+                failed.computeIfAbsent(message.getOwner(), key -> new LinkedHashMap<>()).put(message.getId(), message);
+            } else {
+                queue(message);
+            }
+        }
+        rewriteJournal(snapshot());
+    }
+
+    // Läuft im Journal-Thread (bzw. im Konstruktor), ohne die Sperre der Outbox.
+    private void rewriteJournal(List<OutboxMessage> messages) {
+        Path tmp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (OutboxMessage message : messages) {
+                out.write(writer.writeValueAsString(message));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Konnte Outbox nicht kompaktieren: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Konnte Outbox nicht kompaktieren: " + e.getMessage());
+        }
+    }
+}
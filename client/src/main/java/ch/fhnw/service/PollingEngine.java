@@ -0,0 +1,227 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.Message;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Holt Nachrichten ohne festen Takt. Zuerst wird Long-Poll versucht; antwortet der Server
+// mehrmals sofort mit einer leeren Liste, hält er die Anfrage offensichtlich nicht und es wird
+// adaptiv gepollt: kurz nach Verkehr schnell, danach exponentiell langsamer (mit Jitter,
+// damit nicht alle Clients im Gleichschritt anfragen). Weil auch ein kurzer Ausfall dazu führt,
+// wird Long-Poll nach einer Pause erneut probiert; scheitert die Probe, wird die Pause verdoppelt.
+public class PollingEngine implements AutoCloseable {
+
+    public static final Duration LONG_POLL_WAIT = Duration.ofSeconds(25);
+
+    private static final long MIN_DELAY_MILLIS = 250;
+    private static final long MAX_DELAY_MILLIS = 15_000;
+    private static final long ERROR_DELAY_MILLIS = 2_000;
+    private static final double BACKOFF_FACTOR = 2.0;
+    private static final double JITTER = 0.2;
+    // Eine leere Long-Poll-Antwort, die schneller kommt, zählt als "Server hält nicht"
+    private static final long MIN_HOLD_MILLIS = 1_000;
+    private static final int QUICK_EMPTY_LIMIT = 3;
+    private static final Duration LONG_POLL_RETRY = Duration.ofMinutes(1);
+    private static final long MAX_LONG_POLL_RETRY_MILLIS = 30 * 60_000;
+
+    private final ChatService chatService;
+    private final Consumer<List<Message>> listener;
+    private final ScheduledExecutorService scheduler;
+    private final boolean tryLongPoll;
+    private final long minRetryMillis;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private volatile boolean longPoll;
+    private volatile boolean running;
+    private volatile long delayMillis = MIN_DELAY_MILLIS;
+    private volatile int quickEmptyResponses;
+    private volatile long retryMillis;
+    // Ab diesem Zeitpunkt (System.nanoTime) wird Long-Poll wieder probiert
+    private volatile long longPollRetryAt;
+    private ScheduledFuture<?> next;
+    private CompletableFuture<?> inFlight;
+    // Wird bei stop() erhöht, damit eine noch laufende Anfrage nach einem Neustart
+    // keine zweite Polling-Kette anstößt
+    private volatile int generation;
+
+    public PollingEngine(ChatService chatService, Consumer<List<Message>> listener) {
+        this(chatService, listener, true);
+    }
+
+    public PollingEngine(ChatService chatService, Consumer<List<Message>> listener, boolean tryLongPoll) {
+        this(chatService, listener, tryLongPoll, LONG_POLL_RETRY);
+    }
+
+    PollingEngine(ChatService chatService, Consumer<List<Message>> listener, boolean tryLongPoll,
+                  Duration longPollRetry) {
+        this.chatService = chatService;
+        this.listener = listener;
+        this.longPoll = tryLongPoll;
+        this.tryLongPoll = tryLongPoll;
+        this.minRetryMillis = longPollRetry.toMillis();
+        this.retryMillis = minRetryMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "message-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        delayMillis = MIN_DELAY_MILLIS;
+        schedule(0, generation);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        generation++;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+
+    // Nach eigenem Senden ist eine Antwort wahrscheinlich: sofort wieder schnell pollen.
+    // Im Long-Poll-Betrieb läuft ohnehin eine offene Anfrage.
+    public synchronized void wakeUp() {
+        if (!running || longPoll) {
+            return;
+        }
+        delayMillis = MIN_DELAY_MILLIS;
+        if (next != null && next.getDelay(TimeUnit.MILLISECONDS) > MIN_DELAY_MILLIS && next.cancel(false)) {
+            schedule(MIN_DELAY_MILLIS, generation);
+        }
+    }
+
+    public boolean isLongPoll() {
+        return longPoll;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getCurrentDelayMillis() {
+        return delayMillis;
+    }
+
+    @Override
+    public void close() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void schedule(long delay, int scheduledGeneration) {
+        if (running && scheduledGeneration == generation) {
+            next = scheduler.schedule(() -> pollOnce(scheduledGeneration), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Die Anfrage läuft asynchron; auch während eines Long-Polls ist kein Thread belegt.
+    // Die nächste Anfrage wird erst nach der Antwort eingeplant.
+    private void pollOnce(int scheduledGeneration) {
+        if (!running) {
+            return;
+        }
+        if (!longPoll && tryLongPoll && System.nanoTime() - longPollRetryAt >= 0) {
+            // Probe: schon eine einzige schnelle leere Antwort führt zurück zum adaptiven Polling
+            quickEmptyResponses = QUICK_EMPTY_LIMIT - 1;
+            longPoll = true;
+        }
+        boolean usedLongPoll = longPoll;
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        // Nachrichten gehen portionsweise an den Listener, noch während die Antwort gelesen wird
+        Consumer<List<Message>> sink = messages -> {
+            if (scheduledGeneration == generation) {
+                received.addAndGet(messages.size());
+                listener.accept(messages);
+            }
+        };
+        CompletableFuture<Integer> poll = usedLongPoll
+                ? chatService.pollMessagesAsync(LONG_POLL_WAIT, sink)
+                : chatService.pollMessagesAsync().thenApply(messages -> {
+                    if (!messages.isEmpty()) {
+                        sink.accept(messages);
+                    }
+                    return messages.size();
+                });
+        synchronized (this) {
+            inFlight = poll;
+        }
+        poll.whenComplete((count, error) -> {
+            if (poll.isCancelled()) {
+                return;
+            }
+            long delay;
+            if (error == null) {
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                delay = usedLongPoll ? afterLongPoll(count == 0, elapsedMillis) : afterPoll(count == 0);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("Polling Fehler: " + cause.getMessage());
+                if (usedLongPoll) {
+                    countQuickEmpty();
+                }
+                delay = jitter(Math.max(delayMillis, ERROR_DELAY_MILLIS));
+            }
+            schedule(delay, scheduledGeneration);
+        });
+    }
+
+    private long afterLongPoll(boolean empty, long elapsedMillis) {
+        if (!empty || elapsedMillis >= MIN_HOLD_MILLIS) {
+            quickEmptyResponses = 0;
+            retryMillis = minRetryMillis;
+            return 0;
+        }
+        countQuickEmpty();
+        return jitter(MIN_DELAY_MILLIS);
+    }
+
+    private void countQuickEmpty() {
+        if (++quickEmptyResponses >= QUICK_EMPTY_LIMIT && longPoll) {
+            System.err.println("Long-Poll hält nicht, wechsle auf adaptives Polling; neuer Versuch in "
+                    + retryMillis / 1000 + " s.");
+            longPoll = false;
+            delayMillis = MIN_DELAY_MILLIS;
+            longPollRetryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryMillis);
+            retryMillis = Math.min(MAX_LONG_POLL_RETRY_MILLIS, retryMillis * 2);
+        }
+    }
+
+    private long afterPoll(boolean empty) {
+        delayMillis = empty
+                ? Math.min(MAX_DELAY_MILLIS, (long) (delayMillis * BACKOFF_FACTOR))
+                : MIN_DELAY_MILLIS;
+        return jitter(delayMillis);
+    }
+
+    private static long jitter(long delay) {
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return (long) (delay * factor);
+    }
+}
@@ -0,0 +1,191 @@
+package ch.fhnw.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Online-Status aller Benutzer im Speicher. Gespeist wird er hauptsächlich aus der kompletten
+// Online-Liste; nur wenn diese älter als die TTL ist, wird ein einzelner Benutzer beim Server
+// nachgefragt. Listener werden nur benachrichtigt, wenn sich ein Status tatsächlich ändert.
+public class PresenceCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(15);
+
+    @FunctionalInterface
+    public interface PresenceListener {
+        // Wird in einem Thread aufgerufen, der eine Änderung geliefert hat (nicht im FX-Thread),
+        // nie gleichzeitig und in der Reihenfolge der Änderungen.
+        void presenceChanged(String user, boolean online);
+    }
+
+    private final ChatService chatService;
+    private final long ttlNanos;
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Letzte komplette Online-Liste und wann sie kam
+    private Set<String> bulkOnline = Set.of();
+    private long bulkAt;
+    private boolean hasBulk;
+    // Einzelabfragen, die neuer sein können als die komplette Liste
+    private final Map<String, Check> checks = new HashMap<>();
+    // Zuletzt gemeldeter Status, für die Änderungs-Events
+    private final Map<String, Boolean> reported = new HashMap<>();
+    // Änderungen werden unter dem Lock eingereiht und ausserhalb der Reihe nach gemeldet;
+    // es meldet immer nur ein Thread, weitere hängen nur an
+    private final ArrayDeque<Change> events = new ArrayDeque<>();
+    private boolean firing;
+
+    public PresenceCache(ChatService chatService) {
+        this(chatService, DEFAULT_TTL);
+    }
+
+    public PresenceCache(ChatService chatService, Duration ttl) {
+        this.chatService = chatService;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PresenceListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Übernimmt eine komplette Online-Liste; wer nicht darin steht, gilt als offline.
+    public void updateAll(Collection<String> onlineUsers) {
+        synchronized (this) {
+            Map<String, Boolean> changes = new HashMap<>();
+            Set<String> online = Set.copyOf(new HashSet<>(onlineUsers));
+            bulkOnline = online;
+            bulkAt = System.nanoTime();
+            hasBulk = true;
+            checks.clear();
+            for (Map.Entry<String, Boolean> known : reported.entrySet()) {
+                if (known.getValue() && !online.contains(known.getKey())) {
+                    changes.put(known.getKey(), false);
+                }
+            }
+            for (String user : online) {
+                if (!Boolean.TRUE.equals(reported.get(user))) {
+                    changes.put(user, true);
+                }
+            }
+            reported.putAll(changes);
+            changes.forEach((user, isOnline) -> events.add(new Change(user, isOnline)));
+        }
+        fire();
+    }
+
+    // Status aus dem Speicher, oder null wenn er älter als die TTL ist.
+    public synchronized Boolean getIfFresh(String user) {
+        long now = System.nanoTime();
+        Check check = checks.get(user);
+        if (check != null && now - check.at < ttlNanos) {
+            return check.online;
+        }
+        if (hasBulk && now - bulkAt < ttlNanos) {
+            return bulkOnline.contains(user);
+        }
+        return null;
+    }
+
+    public boolean isUserOnline(String user) {
+        Boolean cached = getIfFresh(user);
+        if (cached != null) {
+            return cached;
+        }
+        boolean online = chatService.isUserOnline(user);
+        update(user, online);
+        return online;
+    }
+
+    public CompletableFuture<Boolean> isUserOnlineAsync(String user) {
+        Boolean cached = getIfFresh(user);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return chatService.isUserOnlineAsync(user).thenApply(online -> {
+            update(user, online);
+            return online;
+        });
+    }
+
+    // Lädt die komplette Online-Liste neu und übernimmt sie.
+    public CompletableFuture<List<String>> refresh() {
+        return chatService.fetchOnlineUsersAsync().thenApply(online -> {
+            updateAll(online);
+            return online;
+        });
+    }
+
+    public synchronized Set<String> getOnlineUsers() {
+        Set<String> online = new HashSet<>();
+        for (Map.Entry<String, Boolean> known : reported.entrySet()) {
+            if (known.getValue()) {
+                online.add(known.getKey());
+            }
+        }
+        return online;
+    }
+
+    public synchronized void clear() {
+        bulkOnline = Set.of();
+        hasBulk = false;
+        checks.clear();
+        reported.clear();
+        events.clear();
+    }
+
+    private void update(String user, boolean online) {
+        synchronized (this) {
+            checks.put(user, new Check(online, System.nanoTime()));
+            if (!Boolean.valueOf(online).equals(reported.put(user, online))) {
+                events.add(new Change(user, online));
+            }
+        }
+        fire();
+    }
+
+    private void fire() {
+        synchronized (this) {
+            if (firing) {
+                return;
+            }
+            firing = true;
+        }
+        while (true) {
+            Change change;
+            synchronized (this) {
+                change = events.poll();
+                if (change == null) {
+                    firing = false;
+                    return;
+                }
+            }
+            try {
+                for (PresenceListener listener : listeners) {
+                    listener.presenceChanged(change.user(), change.online());
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    firing = false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private record Change(String user, boolean online) {
+    }
+
+    private record Check(boolean online, long at) {
+    }
+}
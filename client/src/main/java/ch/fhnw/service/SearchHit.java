@@ -0,0 +1,5 @@
+package ch.fhnw.service;
+
+// Treffer einer Volltextsuche. position ist die Nummer des Eintrags in der Unterhaltung.
+public record SearchHit(String contact, int position, long timestamp, int score, String message) {
+}
@@ -0,0 +1,237 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Invertierter Index über die Nachrichtentexte eines Besitzers: Wort -> (Kontakt, Position).
+// Wird beim append inkrementell ergänzt und pro Besitzer in einer Datei gespeichert.
+public class SearchIndex {
+
+    private static final int MAGIC = 0x43485331; // "CHS1"
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int EXACT_SCORE = 2;
+    private static final int PREFIX_SCORE = 1;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final List<String> contacts = new ArrayList<>();
+    private final Map<String, Integer> contactIds = new HashMap<>();
+    private long[][] timestamps = new long[8][];
+    private int[] counts = new int[8];
+    private boolean dirty;
+
+    // Zerlegt einen Text in kleingeschriebene Wörter aus Buchstaben und Ziffern.
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public int indexedCount(String contact) {
+        Integer id = contactIds.get(contact);
+        return id == null ? 0 : counts[id];
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    // Nimmt einen Eintrag auf. Positionen müssen lückenlos in Reihenfolge kommen,
+    // sonst wird der Eintrag ignoriert und false zurückgegeben.
+    public boolean add(String contact, int position, ChatEntry entry) {
+        int id = contactId(contact);
+        if (position != counts[id]) {
+            return false;
+        }
+        if (timestamps[id].length == position) {
+            timestamps[id] = Arrays.copyOf(timestamps[id], Math.max(16, position * 2));
+        }
+        timestamps[id][position] = entry.getTimestamp();
+        counts[id]++;
+        for (String term : tokenize(entry.getMessage())) {
+            terms.computeIfAbsent(term, key -> new Postings()).add(id, position);
+        }
+        dirty = true;
+        return true;
+    }
+
+    // Alle Suchwörter müssen vorkommen. Ein Suchwort passt exakt oder als Präfix eines Worts,
+    // exakte Treffer zählen doppelt. Bei gleicher Punktzahl kommen neuere Einträge zuerst.
+    public List<SearchHit> query(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> candidates = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Integer> matches = match(queryTerm, candidates);
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                Map<Long, Integer> previous = candidates;
+                matches.replaceAll((key, score) -> score + previous.get(key));
+                candidates = matches;
+            }
+            if (candidates.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(candidates.size());
+        for (Map.Entry<Long, Integer> candidate : candidates.entrySet()) {
+            int id = (int) (candidate.getKey() >>> 32);
+            int position = (int) (long) candidate.getKey();
+            hits.add(new SearchHit(contacts.get(id), position, timestamps[id][position], candidate.getValue(), null));
+        }
+        hits.sort(Comparator.comparingInt(SearchHit::score).reversed()
+                .thenComparing(Comparator.comparingLong(SearchHit::timestamp).reversed()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // Treffer eines Suchworts, eingeschränkt auf die bisherigen Kandidaten (falls vorhanden).
+    private Map<Long, Integer> match(String queryTerm, Map<Long, Integer> restrictTo) {
+        Map<Long, Integer> matches = new HashMap<>();
+        NavigableMap<String, Postings> range = queryTerm.length() >= MIN_PREFIX_LENGTH
+                ? terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true)
+                : terms.subMap(queryTerm, true, queryTerm, true);
+        for (Map.Entry<String, Postings> term : range.entrySet()) {
+            int score = term.getKey().equals(queryTerm) ? EXACT_SCORE : PREFIX_SCORE;
+            Postings postings = term.getValue();
+            for (int i = 0; i < postings.size; i += 2) {
+                long key = ((long) postings.data[i] << 32) | postings.data[i + 1];
+                if (restrictTo == null || restrictTo.containsKey(key)) {
+                    matches.merge(key, score, Math::max);
+                }
+            }
+        }
+        return matches;
+    }
+
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(contacts.size());
+            for (int id = 0; id < contacts.size(); id++) {
+                out.writeUTF(contacts.get(id));
+                out.writeInt(counts[id]);
+                for (int i = 0; i < counts[id]; i++) {
+                    out.writeLong(timestamps[id][i]);
+                }
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> term : terms.entrySet()) {
+                out.writeUTF(term.getKey());
+                Postings postings = term.getValue();
+                out.writeInt(postings.size);
+                for (int i = 0; i < postings.size; i++) {
+                    out.writeInt(postings.data[i]);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    public static SearchIndex load(Path file) throws IOException {
+        SearchIndex index = new SearchIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unbekanntes Suchindex-Format");
+            }
+            int contactCount = in.readInt();
+            for (int c = 0; c < contactCount; c++) {
+                int id = index.contactId(in.readUTF());
+                int count = in.readInt();
+                long[] contactTimestamps = new long[Math.max(16, count)];
+                for (int i = 0; i < count; i++) {
+                    contactTimestamps[i] = in.readLong();
+                }
+                index.timestamps[id] = contactTimestamps;
+                index.counts[id] = count;
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                Postings postings = new Postings(in.readInt());
+                for (int i = 0; i < postings.data.length; i++) {
+                    postings.data[i] = in.readInt();
+                }
+                postings.size = postings.data.length;
+                index.terms.put(term, postings);
+            }
+        }
+        return index;
+    }
+
+    private int contactId(String contact) {
+        Integer id = contactIds.get(contact);
+        if (id != null) {
+            return id;
+        }
+        id = contacts.size();
+        contacts.add(contact);
+        contactIds.put(contact, id);
+        if (id == counts.length) {
+            counts = Arrays.copyOf(counts, id * 2);
+            timestamps = Arrays.copyOf(timestamps, id * 2);
+        }
+        timestamps[id] = new long[16];
+        return id;
+    }
+
+    // Paare aus Kontakt-Nummer und Position, als int-Array statt als Objekte.
+    private static final class Postings {
+        private int[] data;
+        private int size;
+
+        private Postings() {
+            this(4);
+        }
+
+        private Postings(int capacity) {
+            this.data = new int[capacity];
+        }
+
+        private void add(int contactId, int position) {
+            if (size >= 2 && data[size - 2] == contactId && data[size - 1] == position) {
+                return;
+            }
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, Math.max(4, data.length * 2));
+            }
+            data[size++] = contactId;
+            data[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ch.fhnw.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Offset-Index neben einer History-Shard (<shard>.idx). Aufbau:
+// 8 Byte indizierte Shard-Länge, danach pro Eintrag 8 Byte Offset und 8 Byte Timestamp.
+// Stimmt die gespeicherte Länge nicht mit der Shard überein, gilt der Index als veraltet.
+final class ShardIndex {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 16;
+
+    private ShardIndex() {}
+
+    // Shard-Offsets der Einträge einer Seite, das Ende des letzten Eintrags
+    // und ob die Seite beim ersten Eintrag der Shard beginnt.
+    record Page(long[] offsets, long endOffset, boolean first) {
+        int size() {
+            return offsets.length;
+        }
+    }
+
+    static Path fileFor(Path shard) {
+        return shard.resolveSibling(shard.getFileName() + ".idx");
+    }
+
+    static boolean isCurrent(Path shard) throws IOException {
+        Path index = fileFor(shard);
+        if (!Files.exists(index)) {
+            return false;
+        }
+        long shardLength = Files.exists(shard) ? Files.size(shard) : 0;
+        return indexedLength(index) == shardLength;
+    }
+
+    static void write(Path shard, long[] offsets, long[] timestamps, int count, long shardLength) throws IOException {
+        Path index = fileFor(shard);
+        Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * RECORD_BYTES);
+        buffer.putLong(shardLength);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(offsets[i]).putLong(timestamps[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Hängt die Einträge eines appends an. Passt der Index nicht zur Länge vor dem append,
+    // wird er gelöscht und beim nächsten Lesen neu aufgebaut.
+    static void append(Path shard, long lengthBefore, long[] offsets, long[] timestamps, int count,
+                       long lengthAfter) throws IOException {
+        Path index = fileFor(shard);
+        if (lengthBefore == 0 && !Files.exists(index)) {
+            write(shard, offsets, timestamps, count, lengthAfter);
+            return;
+        }
+        if (!Files.exists(index) || indexedLength(index) != lengthBefore) {
+            Files.deleteIfExists(index);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            ByteBuffer records = ByteBuffer.allocate(count * RECORD_BYTES);
+            for (int i = 0; i < count; i++) {
+                records.putLong(offsets[i]).putLong(timestamps[i]);
+            }
+            records.flip();
+            long position = channel.size();
+            while (records.hasRemaining()) {
+                position += channel.write(records, position);
+            }
+            // Länge erst nach den Einträgen aktualisieren, damit ein Absturz nur einen veralteten Index hinterlässt
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putLong(0, lengthAfter), 0);
+        }
+    }
+
+    static void delete(Path shard) throws IOException {
+        Files.deleteIfExists(fileFor(shard));
+    }
+
+    // Sucht per Binärsuche die letzten limit Einträge mit Timestamp < before.
+    // Geht davon aus, dass die Timestamps innerhalb einer Shard aufsteigend sind.
+    static Page findPage(Path shard, long before, int limit) throws IOException {
+        Path index = fileFor(shard);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= HEADER_BYTES) {
+                return new Page(new long[0], 0, true);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long shardLength = mapped.getLong(0);
+            LongBuffer records = mapped.position(HEADER_BYTES).slice().asLongBuffer();
+            int count = (int) ((size - HEADER_BYTES) / RECORD_BYTES);
+
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (records.get(mid * 2 + 1) < before) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int to = low;
+            int from = Math.max(0, to - limit);
+            // Einträge mit gleichem Timestamp nicht über zwei Seiten verteilen,
+            // sonst würde die nächste Seite (before = erster Timestamp) sie überspringen.
+            if (from > 0) {
+                long first = records.get(from * 2 + 1);
+                while (from > 0 && records.get((from - 1) * 2 + 1) == first) {
+                    from--;
+                }
+            }
+            long[] offsets = new long[to - from];
+            for (int i = from; i < to; i++) {
+                offsets[i - from] = records.get(i * 2);
+            }
+            long endOffset = to < count ? records.get(to * 2) : shardLength;
+            return new Page(offsets, endOffset, from == 0);
+        }
+    }
+
+    static int count(Path shard) throws IOException {
+        long size = Files.size(fileFor(shard));
+        return size <= HEADER_BYTES ? 0 : (int) ((size - HEADER_BYTES) / RECORD_BYTES);
+    }
+
+    // Timestamp des letzten Eintrags, Long.MIN_VALUE bei einer leeren Shard.
+    static long lastTimestamp(Path shard) throws IOException {
+        try (FileChannel channel = FileChannel.open(fileFor(shard), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + RECORD_BYTES) {
+                return Long.MIN_VALUE;
+            }
+            ByteBuffer timestamp = ByteBuffer.allocate(8);
+            long position = size - 8;
+            while (timestamp.hasRemaining() && channel.read(timestamp, position + timestamp.position()) > 0) {
+                // weiterlesen bis der Timestamp vollständig ist
+            }
+            return timestamp.getLong(0);
+        }
+    }
+
+    // Einträge from (inklusive) bis to (exklusive) in Shard-Reihenfolge.
+    static Page range(Path shard, int from, int to) throws IOException {
+        Path index = fileFor(shard);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = size <= HEADER_BYTES ? 0 : (int) ((size - HEADER_BYTES) / RECORD_BYTES);
+            to = Math.min(to, count);
+            if (from >= to) {
+                return new Page(new long[0], 0, from == 0);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long shardLength = mapped.getLong(0);
+            LongBuffer records = mapped.position(HEADER_BYTES).slice().asLongBuffer();
+            long[] offsets = new long[to - from];
+            for (int i = from; i < to; i++) {
+                offsets[i - from] = records.get(i * 2);
+            }
+            long endOffset = to < count ? records.get(to * 2) : shardLength;
+            return new Page(offsets, endOffset, from == 0);
+        }
+    }
+
+    // Einzelne Einträge an aufsteigend sortierten Positionen; Positionen hinter dem Ende fallen weg.
+    // Das Ende der Seite ist das Ende des letzten gewählten Eintrags.
+    static Page select(Path shard, int[] positions) throws IOException {
+        Path index = fileFor(shard);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = size <= HEADER_BYTES ? 0 : (int) ((size - HEADER_BYTES) / RECORD_BYTES);
+            int selected = 0;
+            while (selected < positions.length && positions[selected] < count) {
+                selected++;
+            }
+            if (selected == 0) {
+                return new Page(new long[0], 0, false);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long shardLength = mapped.getLong(0);
+            LongBuffer records = mapped.position(HEADER_BYTES).slice().asLongBuffer();
+            long[] offsets = new long[selected];
+            for (int i = 0; i < selected; i++) {
+                offsets[i] = records.get(positions[i] * 2);
+            }
+            int last = positions[selected - 1];
+            long endOffset = last + 1 < count ? records.get((last + 1) * 2) : shardLength;
+            return new Page(offsets, endOffset, positions[0] == 0);
+        }
+    }
+
+    private static long indexedLength(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return -1;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // weiterlesen bis der Header vollständig ist
+            }
+            return header.getLong(0);
+        }
+    }
+}
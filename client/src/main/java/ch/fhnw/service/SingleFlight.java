@@ -0,0 +1,114 @@
+package ch.fhnw.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Fasst gleichzeitige Anfragen mit demselben Schlüssel zusammen: solange eine läuft, bekommen
+// weitere Aufrufer deren Ergebnis. Ein erfolgreiches Ergebnis wird zusätzlich für minInterval
+// wiederverwendet, damit schnelle Wiederholungen (Timer, Button, Suche) den Server nicht treffen.
+final class SingleFlight {
+
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+    // Abgelaufene Einträge (z.B. "online:<user>" für längst geschlossene Chats) werden
+    // weggeräumt, sobald die Map diese Größe erreicht
+    private int sweepAt = 16;
+
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> run(String key, Duration minInterval, Supplier<CompletableFuture<T>> request) {
+        Flight<T> flight;
+        boolean start = false;
+        synchronized (this) {
+            long now = System.nanoTime();
+            flight = (Flight<T>) flights.get(key);
+            if (flight == null || flight.future.isDone() && now - flight.completedAt >= minInterval.toNanos()) {
+                if (flights.size() >= sweepAt) {
+                    flights.values().removeIf(existing -> existing.isExpired(now));
+                    sweepAt = Math.max(16, flights.size() * 2);
+                }
+                flight = new Flight<>(minInterval.toNanos());
+                flights.put(key, flight);
+                start = true;
+            }
+            if (!flight.future.isDone()) {
+                flight.waiters++;
+            }
+        }
+        // Erst nach dem Eintragen und außerhalb der Sperre starten: eine sofort fertige Anfrage
+        // findet so ihren Eintrag, und ein Fehler beim Start blockiert keine anderen Schlüssel
+        if (start) {
+            Flight<T> started = flight;
+            try {
+                CompletableFuture<T> upstream = request.get();
+                synchronized (this) {
+                    started.upstream = upstream;
+                }
+                upstream.whenComplete((value, error) -> complete(key, started, value, error));
+            } catch (RuntimeException e) {
+                complete(key, started, null, e);
+            }
+        }
+        // Jeder Aufrufer bekommt eine eigene Future: cancel() betrifft nur ihn; erst wenn alle
+        // Wartenden abgebrochen haben, wird auch die geteilte Anfrage abgebrochen
+        CompletableFuture<T> own = flight.future.thenApply(value -> value);
+        Flight<T> joined = flight;
+        own.whenComplete((value, error) -> {
+            if (own.isCancelled()) {
+                cancelled(key, joined);
+            }
+        });
+        return own;
+    }
+
+    synchronized void clear() {
+        flights.clear();
+    }
+
+    private void cancelled(String key, Flight<?> flight) {
+        CompletableFuture<?> upstream;
+        synchronized (this) {
+            if (--flight.waiters > 0 || flight.future.isDone()) {
+                return;
+            }
+            flights.remove(key, flight);
+            upstream = flight.upstream;
+        }
+        if (upstream != null) {
+            upstream.cancel(true);
+        }
+    }
+
+    private <T> void complete(String key, Flight<T> flight, T value, Throwable error) {
+        synchronized (this) {
+            if (error != null) {
+                // Fehler nicht zwischenspeichern, der nächste Aufruf versucht es erneut
+                flights.remove(key, flight);
+            } else {
+                flight.completedAt = System.nanoTime();
+            }
+        }
+        if (error != null) {
+            flight.future.completeExceptionally(error);
+        } else {
+            flight.future.complete(value);
+        }
+    }
+
+    private static final class Flight<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long minIntervalNanos;
+        private CompletableFuture<T> upstream;
+        private int waiters;
+        private long completedAt;
+
+        private Flight(long minIntervalNanos) {
+            this.minIntervalNanos = minIntervalNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return future.isDone() && now - completedAt >= minIntervalNanos;
+        }
+    }
+}
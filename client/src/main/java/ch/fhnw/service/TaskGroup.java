@@ -0,0 +1,48 @@
+package ch.fhnw.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Zusammengehörige asynchrone Aufrufe, die gemeinsam enden: schlägt einer fehl oder wird die
+// Gruppe geschlossen, werden alle noch laufenden abgebrochen. Entspricht dem Verhalten von
+// StructuredTaskScope.ShutdownOnFailure, das in Java 21 nur als Preview verfügbar ist.
+public final class TaskGroup implements AutoCloseable {
+
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+    private boolean closed;
+
+    public synchronized <T> CompletableFuture<T> fork(Supplier<CompletableFuture<T>> task) {
+        if (closed) {
+            CompletableFuture<T> cancelled = new CompletableFuture<>();
+            cancelled.cancel(false);
+            return cancelled;
+        }
+        CompletableFuture<T> future = task.get();
+        tasks.add(future);
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                close();
+            }
+        });
+        return future;
+    }
+
+    // Wird fertig, wenn alle Aufrufe fertig sind; schlägt fehl, sobald einer fehlschlägt.
+    public synchronized CompletableFuture<Void> join() {
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (CompletableFuture<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ch.fhnw.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// HttpClient samt Sperren pro Endpunkt. Verbindungen werden nur innerhalb eines Clients
+// wiederverwendet, deshalb teilen sich alle Sitzungen einer ChatEngine einen Transport; so
+// sehen sie auch dieselben Sperren, statt jede einzeln einen ausgefallenen Server zu entdecken.
+public final class Transport implements AutoCloseable {
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    // Steht im Namen der Gauges, damit sich mehrere Transporte (z.B. Lasttest) nicht gegenseitig ersetzen
+    private final String id = "transport-" + IDS.incrementAndGet();
+    private final TransportConfig config;
+    private final HttpClient httpClient;
+    // Nur gesetzt, wenn der Executor hier angelegt wurde und also auch hier beendet wird
+    private final ExecutorService ownExecutor;
+    // Liest gestreamte Bodies, wenn die Antworten auf einem Executor aus der Konfiguration ankommen;
+    // wird erst beim ersten solchen Body angelegt
+    private ExecutorService bodyExecutor;
+    private final Map<URI, Route> routes = new ConcurrentHashMap<>();
+
+    public Transport(TransportConfig config) {
+        this.config = config;
+        // Antworten werden auf virtuellen Threads weiterverarbeitet; ein blockierender Callback
+        // (z.B. ein voller History-Puffer) belegt so keinen Plattform-Thread
+        this.ownExecutor = config.executor() == null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(config.connectTimeout())
+                .version(config.version())
+                .executor(ownExecutor != null ? ownExecutor : config.executor())
+                .build();
+    }
+
+    public TransportConfig config() {
+        return config;
+    }
+
+    HttpClient client() {
+        return httpClient;
+    }
+
+    // Pro URI und damit auch pro Server; der Zustand der Sperre ist als Gauge "<id> <uri>" sichtbar
+    // (0 offen, 1 gesperrt, 2 Probe), bis der Transport geschlossen wird. Die Messwerte gelten
+    // pro Pfad, über alle Server und Transporte.
+    Route route(URI endpoint) {
+        Route route = routes.get(endpoint);
+        if (route != null) {
+            return route;
+        }
+        return routes.computeIfAbsent(endpoint, key -> {
+            CircuitBreaker breaker = new CircuitBreaker(key.toString(), config.failureThreshold(), config.openDuration().toNanos());
+            Metrics.gauge("Breaker", gaugeName(key), () -> breaker.state().ordinal());
+            return new Route(key.getPath(), breaker, Metrics.stats("Http", key.getPath()));
+        });
+    }
+
+    // Ein gestreamter Body blockiert beim Lesen, bis der Server fertig ist. Auf den eigenen virtuellen
+    // Threads passiert das direkt im Callback; ein begrenzter Executor aus der Konfiguration würde
+    // dabei von langsamen Antworten belegt, deshalb wird dann auf einen virtuellen Thread gewechselt.
+    <T, R> CompletableFuture<R> readBody(CompletableFuture<T> exchange, Function<T, R> reader) {
+        return ownExecutor != null ? exchange.thenApply(reader) : exchange.thenApplyAsync(reader, bodyExecutor());
+    }
+
+    private synchronized ExecutorService bodyExecutor() {
+        if (bodyExecutor == null) {
+            bodyExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return bodyExecutor;
+    }
+
+    // Alles, was eine Anfrage pro Endpunkt braucht, mit einem Map-Zugriff statt drei.
+    record Route(String path, CircuitBreaker breaker, LatencyStats stats) {
+    }
+
+    private String gaugeName(URI endpoint) {
+        return id + " " + endpoint;
+    }
+
+    @Override
+    public void close() {
+        httpClient.shutdownNow();
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+        synchronized (this) {
+            if (bodyExecutor != null) {
+                bodyExecutor.shutdownNow();
+            }
+        }
+        for (URI endpoint : routes.keySet()) {
+            Metrics.removeGauge("Breaker", gaugeName(endpoint));
+        }
+    }
+}
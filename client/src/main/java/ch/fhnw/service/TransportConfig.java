@@ -0,0 +1,51 @@
+package ch.fhnw.service;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+// Einstellungen für die HTTP-Verbindung zum Server. Ohne eigenen executor laufen die Antworten
+// auf virtuellen Threads, die der Transport selbst anlegt und beim Schließen beendet. Ein eigener
+// executor muss nicht blockieren können: gestreamte Bodies liest der Transport dann auf virtuellen
+// Threads, die er beim ersten solchen Body anlegt.
+// HTTP/1.1 ist Standard, weil der Server unverschlüsselt nur HTTP/1.1 spricht; mit HTTP/2 würde
+// der Client auf jeder neuen Verbindung zuerst ein Upgrade versuchen.
+public record TransportConfig(Duration connectTimeout,
+                              Duration requestTimeout,
+                              HttpClient.Version version,
+                              Executor executor,
+                              int failureThreshold,
+                              Duration openDuration) {
+
+    public static final TransportConfig DEFAULT = new TransportConfig(
+            Duration.ofSeconds(5), Duration.ofSeconds(10), HttpClient.Version.HTTP_1_1, null, 5, Duration.ofSeconds(15));
+
+    public TransportConfig {
+        if (connectTimeout.isNegative() || connectTimeout.isZero() || requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("Timeouts müssen positiv sein");
+        }
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold muss mindestens 1 sein");
+        }
+        if (openDuration == null || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("openDuration muss positiv sein");
+        }
+    }
+
+    public TransportConfig withTimeouts(Duration connectTimeout, Duration requestTimeout) {
+        return new TransportConfig(connectTimeout, requestTimeout, version, executor, failureThreshold, openDuration);
+    }
+
+    public TransportConfig withVersion(HttpClient.Version version) {
+        return new TransportConfig(connectTimeout, requestTimeout, version, executor, failureThreshold, openDuration);
+    }
+
+    public TransportConfig withExecutor(Executor executor) {
+        return new TransportConfig(connectTimeout, requestTimeout, version, executor, failureThreshold, openDuration);
+    }
+
+    // Nach failureThreshold Fehlern in Folge wird ein Endpunkt für openDuration gesperrt.
+    public TransportConfig withCircuitBreaker(int failureThreshold, Duration openDuration) {
+        return new TransportConfig(connectTimeout, requestTimeout, version, executor, failureThreshold, openDuration);
+    }
+}
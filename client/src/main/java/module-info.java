@@ -4,9 +4,11 @@ module ch.fhnw.chatclient {
     requires com.fasterxml.jackson.annotation;
     requires com.fasterxml.jackson.databind;
     requires java.net.http;
+    requires java.management;
 
 
     opens ch.fhnw.chatclient to javafx.graphics, javafx.fxml;
     opens ch.fhnw.model to com.fasterxml.jackson.databind;
     exports ch.fhnw.chatclient;
+    exports ch.fhnw.service to java.management;
 }
\ No newline at end of file
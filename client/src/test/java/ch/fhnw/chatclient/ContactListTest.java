@@ -0,0 +1,79 @@
+package ch.fhnw.chatclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactListTest {
+
+    @Test
+    void diffListsAddedAndRemovedNamesInOrder() {
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        ContactList.diff(sorted("alice", "Bob", "carol", "erin"), sorted("bob", "Bob", "Carol", "dave", "erin"),
+                added, removed);
+
+        assertEquals(List.of("bob", "Carol", "dave"), added);
+        assertEquals(List.of("alice", "carol"), removed);
+    }
+
+    @Test
+    void diffAgainstEmptySide() {
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        ContactList.diff(sorted(), sorted("zoe", "Adam"), added, removed);
+        assertEquals(List.of("Adam", "zoe"), added);
+        assertTrue(removed.isEmpty());
+
+        added.clear();
+        ContactList.diff(sorted("zoe", "Adam"), sorted(), added, removed);
+        assertTrue(added.isEmpty());
+        assertEquals(List.of("Adam", "zoe"), removed);
+    }
+
+    @Test
+    void applyingTheDiffYieldsTheTarget() {
+        Random random = new Random(42);
+        TreeSet<String> current = new TreeSet<>(ContactList.ORDER);
+        for (int round = 0; round < 50; round++) {
+            TreeSet<String> target = new TreeSet<>(ContactList.ORDER);
+            for (int i = 0; i < 200; i++) {
+                target.add(name(random));
+            }
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            ContactList.diff(current, target, added, removed);
+
+            assertSorted(added);
+            assertSorted(removed);
+            current.removeAll(removed);
+            current.addAll(added);
+            assertEquals(new ArrayList<>(target), new ArrayList<>(current));
+        }
+    }
+
+    private static String name(Random random) {
+        char first = (char) ((random.nextBoolean() ? 'A' : 'a') + random.nextInt(3));
+        return first + "user" + random.nextInt(300);
+    }
+
+    private static TreeSet<String> sorted(String... names) {
+        TreeSet<String> set = new TreeSet<>(ContactList.ORDER);
+        set.addAll(List.of(names));
+        return set;
+    }
+
+    private static void assertSorted(List<String> names) {
+        for (int i = 1; i < names.size(); i++) {
+            assertTrue(ContactList.ORDER.compare(names.get(i - 1), names.get(i)) < 0, names.toString());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ch.fhnw.chatclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactSearchIndexTest {
+
+    private final ContactSearchIndex index = new ContactSearchIndex();
+
+    @Test
+    void findsNamesContainingTheTermIgnoringCase() {
+        index.add("Anna-Lena");
+        index.add("LENA");
+        index.add("Magdalena");
+        index.add("Leonie");
+
+        assertEquals(Set.of("Anna-Lena", "LENA", "Magdalena"), Set.copyOf(index.find("lena")));
+        assertEquals(Set.of("Anna-Lena"), Set.copyOf(index.find("a-le")));
+        assertTrue(index.find("xyz").isEmpty());
+    }
+
+    @Test
+    void allTrigramsPresentIsNotEnough() {
+        // Enthält abc und bcd, aber nicht abcd
+        index.add("abcxbcd");
+        index.add("xabcdx");
+
+        assertEquals(List.of("xabcdx"), index.find("abcd"));
+    }
+
+    @Test
+    void removedNamesAreGoneAndTheirSlotsReused() {
+        index.add("Bob");
+        index.add("Bobby");
+        index.remove("Bob");
+        index.remove("Unbekannt");
+        index.add("Robert");
+
+        assertEquals(List.of("Bobby"), index.find("bob"));
+        assertEquals(List.of("Robert"), index.find("obe"));
+        index.remove("Bobby");
+        assertTrue(index.find("bob").isEmpty());
+    }
+
+    @Test
+    void answersLikeAFullScan() {
+        Random random = new Random(7);
+        Set<String> names = new HashSet<>();
+        for (int round = 0; round < 2_000; round++) {
+            String name = name(random);
+            if (names.remove(name)) {
+                index.remove(name);
+            } else {
+                names.add(name);
+                index.add(name);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            String term = ContactSearchIndex.normalize(name(random).substring(0, 3 + random.nextInt(3)));
+            Set<String> expected = new HashSet<>();
+            for (String name : names) {
+                if (ContactSearchIndex.normalize(name).contains(term)) {
+                    expected.add(name);
+                }
+            }
+            List<String> found = new ArrayList<>(index.find(term));
+            assertEquals(expected.size(), found.size(), term);
+            assertEquals(expected, Set.copyOf(found), term);
+        }
+    }
+
+    // Wenige Buchstaben, damit sich Trigramme oft überschneiden
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 6 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            char c = (char) ('a' + random.nextInt(4));
+            name.append(random.nextInt(5) == 0 ? Character.toUpperCase(c) : c);
+        }
+        return name.toString();
+    }
+}
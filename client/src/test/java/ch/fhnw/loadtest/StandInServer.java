@@ -0,0 +1,264 @@
+package ch.fhnw.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Eingebetteter Ersatz für den Chat-Server auf javaprojects.ch:50001, damit der Client ohne Netz
+// gemessen werden kann. Bildet die Endpunkte nach, die ChatService verwendet, inklusive Long-Poll
+// über das Feld "timeout". Künstliche Latenz und Fehler (HTTP 500) lassen sich zur Laufzeit setzen.
+// Jede Anfrage läuft auf einem eigenen virtuellen Thread, ein offener Long-Poll kostet also nichts.
+// Mit -Dsun.net.httpserver.nodelay=true starten (Surefire setzt es): der eingebaute Server schreibt
+// Header und Body getrennt, mit Nagle wartet der Body auf das verzögerte ACK und jede Antwort kostet ~40 ms.
+public class StandInServer implements AutoCloseable {
+
+    // Länger hält der Server einen Long-Poll nicht offen, egal was der Client verlangt
+    private static final long MAX_LONG_POLL_SECONDS = 30;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, String> passwords = new ConcurrentHashMap<>();
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final Map<String, LinkedBlockingQueue<Map<String, String>>> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double failureRate;
+
+    // Port 0 wählt einen freien Port, siehe getBaseUrl().
+    public StandInServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/ping", this::ping);
+        server.createContext("/user/register", this::register);
+        server.createContext("/user/login", this::login);
+        server.createContext("/user/logout", this::logout);
+        server.createContext("/user/online", this::online);
+        server.createContext("/users/online", this::usersOnline);
+        server.createContext("/users", this::users);
+        server.createContext("/chat/send", this::send);
+        server.createContext("/chat/poll", this::poll);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // Jede Antwort wird um latency plus zufällig bis zu jitter verzögert.
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    // Anteil der Anfragen (0..1), die ohne Wirkung mit HTTP 500 beantwortet werden.
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedFailures() {
+        return injectedFailures.get();
+    }
+
+    private void ping(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            if (body == null) {
+                return Map.of("ping", true);
+            }
+            return Map.of("ping", tokens.containsKey(text(body, "token")));
+        });
+    }
+
+    private void register(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            String username = text(body, "username");
+            if (username.isEmpty() || passwords.putIfAbsent(username, text(body, "password")) != null) {
+                return null;
+            }
+            mailboxes.put(username, new LinkedBlockingQueue<>());
+            return Map.of("username", username);
+        });
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            String username = text(body, "username");
+            String password = passwords.get(username);
+            if (password == null || !password.equals(text(body, "password"))) {
+                return null;
+            }
+            // Wie beim echten Server: ein neuer Login ersetzt den alten Token
+            tokens.values().remove(username);
+            String token = UUID.randomUUID().toString();
+            tokens.put(token, username);
+            return Map.of("token", token);
+        });
+    }
+
+    private void logout(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> Map.of("logout", tokens.remove(text(body, "token")) != null));
+    }
+
+    // Mit "username" die Frage, ob dieser Benutzer online ist, sonst die Liste aller Angemeldeten.
+    private void online(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            if (!tokens.containsKey(text(body, "token"))) {
+                return null;
+            }
+            if (body.hasNonNull("username")) {
+                return Map.of("online", tokens.containsValue(text(body, "username")));
+            }
+            return Map.of("online", onlineUsers());
+        });
+    }
+
+    private void usersOnline(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> Map.of("online", onlineUsers()));
+    }
+
+    private void users(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> Map.of("users", new ArrayList<>(passwords.keySet())));
+    }
+
+    private void send(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            String sender = tokens.get(text(body, "token"));
+            LinkedBlockingQueue<Map<String, String>> mailbox = mailboxes.get(text(body, "username"));
+            if (sender == null) {
+                return null;
+            }
+            if (mailbox == null) {
+                return Map.of("send", false);
+            }
+            mailbox.add(Map.of("username", sender, "message", text(body, "message")));
+            return Map.of("send", true);
+        });
+    }
+
+    // Ohne "timeout" kommt sofort eine (eventuell leere) Antwort, sonst wartet der Server bis zur
+    // ersten Nachricht und gibt dann alles zurück, was bis dahin im Postfach liegt.
+    private void poll(HttpExchange exchange) throws IOException {
+        handle(exchange, body -> {
+            String username = tokens.get(text(body, "token"));
+            if (username == null) {
+                return null;
+            }
+            LinkedBlockingQueue<Map<String, String>> mailbox = mailboxes.get(username);
+            List<Map<String, String>> messages = new ArrayList<>();
+            long timeout = Math.min(body.path("timeout").asLong(0), MAX_LONG_POLL_SECONDS);
+            if (timeout > 0 && mailbox.isEmpty()) {
+                Map<String, String> first = mailbox.poll(timeout, TimeUnit.SECONDS);
+                if (first != null) {
+                    messages.add(first);
+                }
+            }
+            mailbox.drainTo(messages);
+            return Map.of("messages", messages);
+        });
+    }
+
+    private List<String> onlineUsers() {
+        return new ArrayList<>(tokens.values());
+    }
+
+    // Gemeinsamer Ablauf: Body lesen, Fehler würfeln, Antwort berechnen, Latenz abwarten, senden.
+    // Liefert der Handler null, gilt die Anfrage als ungültig (400).
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            JsonNode body = readBody(exchange);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (failureRate > 0 && random.nextDouble() < failureRate) {
+                injectedFailures.incrementAndGet();
+                delay(random);
+                respond(exchange, 500, "{\"error\":\"injected\"}".getBytes());
+                return;
+            }
+            Object result;
+            try {
+                result = handler.handle(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay(random);
+            if (result == null) {
+                respond(exchange, 400, "{\"error\":\"bad request\"}".getBytes());
+            } else {
+                respond(exchange, 200, mapper.writeValueAsBytes(result));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Stand-in-Server: Anfrage an " + exchange.getRequestURI() + " fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    // GET-Anfragen haben keinen Body, dann ist das Ergebnis null.
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            return bytes.length == 0 ? null : mapper.readTree(bytes);
+        }
+    }
+
+    private void delay(ThreadLocalRandom random) {
+        long millis = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String text(JsonNode body, String field) {
+        return body == null ? "" : body.path(field).asText("");
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(JsonNode body) throws InterruptedException;
+    }
+}
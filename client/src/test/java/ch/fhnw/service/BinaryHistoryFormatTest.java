@@ -0,0 +1,201 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryHistoryFormatTest {
+
+    private final HistoryFormat format = HistoryFormat.BINARY;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        List<ChatEntry> entries = List.of(
+                new ChatEntry("bob", true, "Hallo", 1_700_000_000_000L),
+                new ChatEntry("bob", false, "Grüezi mitenand 👋", 0L),
+                new ChatEntry("bob", false, "", Long.MAX_VALUE),
+                new ChatEntry("bob", true, null, 42L),
+                new ChatEntry("bob", false, "x".repeat(100_000), 1L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ChatEntry entry : entries) {
+            format.writeRecord(entry, out);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        for (ChatEntry expected : entries) {
+            assertSameEntry(expected, format.readRecord(buffer, "bob"));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void truncatedRecordIsEndOfFile() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.writeRecord(new ChatEntry("bob", true, "abgeschnitten", 1L), out);
+        byte[] record = out.toByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(record, record.length - 1));
+        assertThrows(EOFException.class, () -> format.readRecord(buffer, "bob"));
+    }
+
+    @Test
+    void archiveRoundTrip() throws IOException {
+        HistoryStore source = new HistoryStore(dir.resolve("source.json"), HistoryFormat.BINARY);
+        List<ChatEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.add(new ChatEntry(i % 3 == 0 ? "carol" : "bob", i % 2 == 0, "Nachricht " + i, 1_000L + i));
+        }
+        source.appendAll("alice", entries);
+
+        for (boolean compress : new boolean[] {false, true}) {
+            Path archive = dir.resolve("archive-" + compress + ".cha");
+            new HistoryArchive(source).exportBinary("alice", archive, compress);
+            HistoryStore target = new HistoryStore(dir.resolve("target-" + compress + ".json"), HistoryFormat.JSON_LINES);
+
+            assertEquals(entries.size(), new HistoryArchive(target).importBinary(archive));
+            assertEquals(List.of("bob", "carol"), target.loadContacts("alice"));
+            for (String contact : List.of("bob", "carol")) {
+                List<ChatEntry> expected = source.loadConversation("alice", contact);
+                List<ChatEntry> actual = target.loadConversation("alice", contact);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSameEntry(expected.get(i), actual.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void unknownContactInArchiveIsIOException() throws IOException {
+        HistoryStore source = new HistoryStore(dir.resolve("source.json"), HistoryFormat.BINARY);
+        ChatEntry entry = new ChatEntry("bob", true, "Hallo Bob", 1_000L);
+        source.appendAll("alice", List.of(entry));
+        Path archive = dir.resolve("archive.cha");
+        new HistoryArchive(source).exportBinary("alice", archive, false);
+
+        // Vor dem Eintrag steht die Kontakt-Nummer (0), es gibt aber nur einen Kontakt
+        byte[] bytes = Files.readAllBytes(archive);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        format.writeRecord(entry, record);
+        int at = indexOf(bytes, record.toByteArray());
+        assertTrue(at > 0);
+        assertEquals(0, bytes[at - 1]);
+        bytes[at - 1] = 5;
+        Files.write(archive, bytes);
+
+        HistoryStore target = new HistoryStore(dir.resolve("target.json"), HistoryFormat.BINARY);
+        assertThrows(IOException.class, () -> new HistoryArchive(target).importBinary(archive));
+    }
+
+    @Test
+    void impossibleRecordLengthIsIOException() throws IOException {
+        // Varint mit allen Bits gesetzt, also eine negative Länge
+        ByteBuffer negative = ByteBuffer.wrap(new byte[] {-1, -1, -1, -1, -1, -1, -1, -1, -1, 1, 0, 0});
+        assertThrows(IOException.class, () -> format.readRecord(negative, "bob"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryHistoryFormat.writeVarint(out, 1L << 40);
+        out.write(0);
+        assertThrows(IOException.class, () -> format.readRecord(ByteBuffer.wrap(out.toByteArray()), "bob"));
+    }
+
+    @Test
+    void resyncSkipsRecordWithWrongLength() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.writeRecord(new ChatEntry("bob", true, "vorher", 1L), out);
+        int corrupt = out.size();
+        // Behauptet 15 MB, die Datei ist aber viel kürzer
+        BinaryHistoryFormat.writeVarint(out, 15 * 1024 * 1024);
+        int next = out.size();
+        for (int i = 0; i < 5; i++) {
+            format.writeRecord(new ChatEntry("bob", false, "nachher " + i, 2L + i), out);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        buffer.position(corrupt);
+        assertThrows(IOException.class, () -> format.readRecord(buffer, "bob"));
+
+        assertEquals(next, format.skipCorrupt(buffer, corrupt));
+        buffer.position(next);
+        assertEquals("nachher 0", format.readRecord(buffer, "bob").getMessage());
+    }
+
+    @Test
+    void corruptLengthsInArchiveAreIOException() throws IOException {
+        // Blocklänge grösser als der Rest der Datei
+        assertCorrupt(archive(out -> {
+            BinaryHistoryFormat.writeVarint(out, 10);
+            BinaryHistoryFormat.writeVarint(out, Integer.MAX_VALUE);
+        }));
+        // Negative Rohlänge
+        assertCorrupt(archive(out -> BinaryHistoryFormat.writeVarint(out, -1L)));
+        // Rohlänge über der grössten möglichen Blockgrösse
+        assertCorrupt(archive(out -> BinaryHistoryFormat.writeVarint(out, 1L << 31)));
+        // Unkomprimiert müssen Roh- und gespeicherte Länge gleich sein
+        assertCorrupt(archive(out -> {
+            BinaryHistoryFormat.writeVarint(out, 1_000_000);
+            BinaryHistoryFormat.writeVarint(out, 2);
+            out.write(new byte[] {0, 0});
+        }));
+        // Kontaktname länger als die Datei
+        Path names = dir.resolve("names.cha");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'C', 'H', 'A', 1, 0, 5, 'a', 'l', 'i', 'c', 'e', 1});
+        BinaryHistoryFormat.writeVarint(out, Integer.MAX_VALUE);
+        Files.write(names, out.toByteArray());
+        assertCorrupt(names);
+    }
+
+    private interface BlockWriter {
+        void write(ByteArrayOutputStream out) throws IOException;
+    }
+
+    // Unkomprimiertes Archiv von alice mit dem Kontakt bob, danach die übergebenen Blockdaten
+    private Path archive(BlockWriter blocks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'C', 'H', 'A', 1, 0, 5, 'a', 'l', 'i', 'c', 'e', 1, 3, 'b', 'o', 'b'});
+        blocks.write(out);
+        Path file = Files.createTempFile(dir, "corrupt", ".cha");
+        Files.write(file, out.toByteArray());
+        return file;
+    }
+
+    private void assertCorrupt(Path archive) {
+        HistoryStore target = new HistoryStore(dir.resolve("target.json"), HistoryFormat.BINARY);
+        IOException e = assertThrows(IOException.class, () -> new HistoryArchive(target).importBinary(archive));
+        assertEquals("Archiv beschädigt", e.getMessage());
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertSameEntry(ChatEntry expected, ChatEntry actual) {
+        assertEquals(expected.getContact(), actual.getContact());
+        assertEquals(expected.isOutgoing(), actual.isOutgoing());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    }
+}
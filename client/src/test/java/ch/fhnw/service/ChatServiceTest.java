@@ -0,0 +1,71 @@
+package ch.fhnw.service;
+
+import ch.fhnw.loadtest.StandInServer;
+import ch.fhnw.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Die synchronen Aufrufe gegen den StandInServer
+class ChatServiceTest {
+
+    private StandInServer server;
+    private ChatService alice;
+    private ChatService bob;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StandInServer(0);
+        server.start();
+        alice = login("alice");
+        bob = login("bob");
+    }
+
+    @AfterEach
+    void tearDown() {
+        alice.close();
+        bob.close();
+        server.close();
+    }
+
+    @Test
+    void onlineCheckIsSentAgainWithTheSameRequest() throws Exception {
+        assertTrue(alice.isUserOnline("bob"));
+        assertTrue(alice.isUserOnline("bob"));
+        assertFalse(alice.isUserOnline("carol"));
+        assertTrue(alice.isUserOnlineAsync("bob").get(5, TimeUnit.SECONDS));
+
+        // Gemerkt wird nur die Anfrage, nicht die Antwort
+        assertTrue(bob.logout());
+        assertFalse(alice.isUserOnline("bob"));
+    }
+
+    @Test
+    void sendMessageReachesTheRecipient() throws Exception {
+        assertTrue(alice.sendMessage("bob", "Grüezi \"Bob\""));
+        assertTrue(alice.sendMessageAsync("bob", "Zweite").get(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("Grüezi \"Bob\"", "Zweite"),
+                bob.pollMessages().stream().map(Message::getMessage).toList());
+
+        assertTrue(alice.logout());
+        assertThrows(IllegalStateException.class, () -> alice.sendMessage("bob", "Ohne Login"));
+        assertFalse(alice.isUserOnline("bob"));
+    }
+
+    private ChatService login(String user) throws Exception {
+        ChatService service = new ChatService();
+        service.setBaseUrl(server.getBaseUrl());
+        service.register(user, "secret");
+        assertTrue(service.login(user, "secret"));
+        return service;
+    }
+}
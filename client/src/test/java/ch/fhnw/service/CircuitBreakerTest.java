@@ -0,0 +1,77 @@
+package ch.fhnw.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterThresholdFailuresInARow() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/chat/poll", 3, Long.MAX_VALUE);
+        for (int i = 0; i < 2; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        // Ein Erfolg setzt die Zählung zurück
+        breaker.acquire();
+        breaker.onSuccess();
+        for (int i = 0; i < 2; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+    }
+
+    @Test
+    void letsExactlyOneProbeThroughAfterOpenDuration() throws CircuitOpenException {
+        CircuitBreaker breaker = opened();
+
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    @Test
+    void failedProbeOpensAgain() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/chat/poll", 1, 0);
+        breaker.acquire();
+        breaker.onFailure();
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void releasedProbeMayBeRetried() throws CircuitOpenException {
+        CircuitBreaker breaker = opened();
+
+        breaker.acquire();
+        breaker.release();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    // Offen mit abgelaufener Sperrzeit: die nächste Anfrage ist die Probe.
+    private static CircuitBreaker opened() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/chat/poll", 2, 0);
+        for (int i = 0; i < 2; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+}
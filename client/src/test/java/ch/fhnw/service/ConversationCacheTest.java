@@ -0,0 +1,94 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationCacheTest {
+
+    // 64 Bytes Grundlast plus 2 Bytes pro Zeichen von Kontakt ("bob") und Nachricht (18 Zeichen)
+    private static final long ENTRY_BYTES = 64 + 2 * (3 + 18);
+    private static final int ENTRIES = 10;
+
+    // Platz für zwei Unterhaltungen, aber nicht für drei
+    private final ConversationCache cache = new ConversationCache(ENTRY_BYTES * ENTRIES * 5 / 2);
+
+    @Test
+    void evictsLeastRecentlyUsedConversationWhenOverBudget() {
+        cache.putConversation("alice", "bob", conversation(0));
+        cache.putConversation("carol", "bob", conversation(100));
+        assertEquals(2 * ENTRIES * ENTRY_BYTES, cache.getUsedBytes());
+
+        // Zugriff macht alice zur zuletzt benutzten Unterhaltung, carol wird verdrängt
+        assertNotNull(cache.getConversation("alice", "bob"));
+        cache.putConversation("dave", "bob", conversation(200));
+
+        assertNull(cache.getConversation("carol", "bob"));
+        assertNotNull(cache.getConversation("alice", "bob"));
+        assertNotNull(cache.getConversation("dave", "bob"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2 * ENTRIES * ENTRY_BYTES, cache.getUsedBytes());
+    }
+
+    @Test
+    void appendCountsAgainstTheBudget() {
+        cache.putConversation("alice", "bob", conversation(0));
+        cache.putConversation("carol", "bob", conversation(100));
+
+        // Eine halbe Unterhaltung passt noch, eine ganze zusätzlich nicht mehr
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.onAppend("carol", entry(110 + i));
+        }
+
+        assertNull(cache.getConversation("alice", "bob"));
+        assertEquals(2 * ENTRIES, cache.getConversation("carol", "bob").size());
+        assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+    }
+
+    @Test
+    void doesNotCacheConversationLargerThanBudget() {
+        cache.putConversation("alice", "bob", conversation(0));
+        List<ChatEntry> huge = new ArrayList<>();
+        for (int i = 0; i < 3 * ENTRIES; i++) {
+            huge.add(entry(i));
+        }
+        cache.putConversation("carol", "bob", huge);
+
+        assertNull(cache.getConversation("carol", "bob"));
+        // Die vorhandene Unterhaltung bleibt dabei erhalten
+        assertNotNull(cache.getConversation("alice", "bob"));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void tailAnswersOnlyPagesItCovers() {
+        cache.putTail("alice", "bob", conversation(0), false);
+
+        List<ChatEntry> page = cache.getPage("alice", "bob", entry(8).getTimestamp(), 5);
+        assertEquals(5, page.size());
+        assertEquals(entry(3).getTimestamp(), page.get(0).getTimestamp());
+        // Vor dem Anfang des Endstücks kann noch mehr liegen
+        assertNull(cache.getPage("alice", "bob", entry(3).getTimestamp(), 5));
+        assertNull(cache.getConversation("alice", "bob"));
+    }
+
+    private static List<ChatEntry> conversation(int first) {
+        List<ChatEntry> entries = new ArrayList<>();
+        for (int i = first; i < first + ENTRIES; i++) {
+            entries.add(entry(i));
+        }
+        return entries;
+    }
+
+    // Nachrichten mit genau 18 Zeichen, damit die Schätzung pro Eintrag gleich ist
+    private static ChatEntry entry(int i) {
+        return new ChatEntry("bob", i % 2 == 0, String.format("Nachricht Nr. %04d", i), 1_000L * i);
+    }
+}
@@ -0,0 +1,246 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import ch.fhnw.model.HistoryRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryStoreTest {
+
+    private static final String OWNER = "alice";
+    private static final String CONTACT = "bob";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void migratesJournalAndSkipsTornLastLine() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            lines.add(Json.MAPPER.writeValueAsString(new HistoryRecord(OWNER, entry(i))));
+        }
+        // Absturz mitten im Schreiben der letzten Zeile
+        lines.add("{\"owner\":\"alice\",\"contact\":\"bo");
+        Files.write(dir.resolve("history.jsonl"), lines, StandardCharsets.UTF_8);
+
+        HistoryStore store = new HistoryStore(dir.resolve("history.json"));
+        List<ChatEntry> loaded = store.loadConversation(OWNER, CONTACT);
+
+        assertTexts(loaded, 0, 1, 2);
+        assertFalse(Files.exists(dir.resolve("history.jsonl")));
+        assertTrue(Files.exists(dir.resolve("history.jsonl.migrated")));
+    }
+
+    @Test
+    void retriesMigrationThatFailedBefore() throws IOException {
+        Path legacy = dir.resolve("history.json");
+        Files.writeString(legacy, "{\"alice\": {\"bob\": [");
+        // Reste eines abgebrochenen Versuchs stören nicht
+        Files.createDirectories(dir.resolve("history.tmp").resolve("alice"));
+
+        HistoryStore store = new HistoryStore(legacy);
+        store.appendAll(OWNER, List.of(entry(3)));
+        assertTrue(Files.exists(legacy));
+
+        Files.write(legacy, Json.MAPPER.writeValueAsBytes(Map.of(OWNER, Map.of(CONTACT, entries(0, 3)))));
+        HistoryStore reopened = new HistoryStore(legacy);
+        assertTexts(reopened.loadConversation(OWNER, CONTACT), 0, 1, 2, 3);
+        assertTrue(Files.exists(dir.resolve("history.json.migrated")));
+
+        // Beim nächsten Start ist die Ablage fertig, nichts wird doppelt einsortiert
+        assertTexts(new HistoryStore(legacy).loadConversation(OWNER, CONTACT), 0, 1, 2, 3);
+    }
+
+    @Test
+    void cutsTornTailBeforeTheNextAppend() throws IOException {
+        for (HistoryFormat format : HistoryFormat.ALL) {
+            Path history = dir.resolve(format.fileSuffix().substring(1)).resolve("history.json");
+            HistoryStore store = new HistoryStore(history, format);
+            store.appendAll(OWNER, entries(0, 5));
+            store.close();
+            Path shard = shard(store);
+            long intact = Files.size(shard);
+
+            // Der letzte append wurde nur zur Hälfte geschrieben
+            byte[] record = record(format, entry(5));
+            Files.write(shard, Arrays.copyOf(record, record.length / 2), StandardOpenOption.APPEND);
+
+            HistoryStore reopened = new HistoryStore(history, format);
+            reopened.appendAll(OWNER, List.of(entry(6)));
+
+            assertTexts(reopened.loadConversation(OWNER, CONTACT), 0, 1, 2, 3, 4, 6);
+            assertEquals(intact + record(format, entry(6)).length, Files.size(shard), format.fileSuffix());
+            assertTexts(new HistoryStore(history, format).loadConversation(OWNER, CONTACT), 0, 1, 2, 3, 4, 6);
+        }
+    }
+
+    @Test
+    void keepsEntriesAfterCorruptRecordInTheMiddle() throws IOException {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        store.appendAll(OWNER, entries(0, 10));
+        store.close();
+        Path shard = shard(store);
+        byte[] bytes = Files.readAllBytes(shard);
+
+        // Längenfeld des vierten Eintrags zerstören
+        int offset = HistoryFormat.BINARY.fileHeader().length;
+        for (int i = 0; i < 3; i++) {
+            offset += record(HistoryFormat.BINARY, entry(i)).length;
+        }
+        bytes[offset] = 1;
+        Files.write(shard, bytes);
+
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        assertTexts(reopened.loadConversation(OWNER, CONTACT), 0, 1, 2, 4, 5, 6, 7, 8, 9);
+        // Nichts abgeschnitten, das Original liegt zusätzlich als Kopie daneben
+        assertEquals(bytes.length, Files.size(shard));
+        Path copy = shard.resolveSibling(shard.getFileName() + ".corrupt");
+        assertEquals(-1, Files.mismatch(shard, copy));
+
+        reopened.appendAll(OWNER, List.of(entry(10)));
+        assertTexts(new HistoryStore(history, HistoryFormat.BINARY).loadConversation(OWNER, CONTACT),
+                0, 1, 2, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    void loadsPagesBackwardsInAscendingOrder() {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        store.appendAll(OWNER, entries(0, 250));
+        store.close();
+
+        // Neue Instanz: gelesen wird über den Offset-Index, nicht aus dem Cache
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        List<ChatEntry> latest = reopened.loadConversation(OWNER, CONTACT, Long.MAX_VALUE, 100);
+        assertTexts(latest, range(150, 250));
+        List<ChatEntry> older = reopened.loadConversation(OWNER, CONTACT, latest.get(0).getTimestamp(), 100);
+        assertTexts(older, range(50, 150));
+        List<ChatEntry> oldest = reopened.loadConversation(OWNER, CONTACT, older.get(0).getTimestamp(), 100);
+        assertTexts(oldest, range(0, 50));
+        assertTrue(reopened.loadConversation(OWNER, CONTACT, oldest.get(0).getTimestamp(), 100).isEmpty());
+    }
+
+    @Test
+    void importsOlderEntriesInTimestampOrder() throws IOException {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        List<ChatEntry> even = new ArrayList<>();
+        List<ChatEntry> odd = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            (i % 2 == 0 ? even : odd).add(entry(i));
+        }
+        store.appendAll(OWNER, odd);
+        store.importAll(OWNER, even);
+
+        assertTexts(store.loadConversation(OWNER, CONTACT), range(0, 40));
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        List<ChatEntry> latest = reopened.loadConversation(OWNER, CONTACT, Long.MAX_VALUE, 10);
+        assertTexts(latest, range(30, 40));
+        assertTexts(reopened.loadConversation(OWNER, CONTACT, latest.get(0).getTimestamp(), 10), range(20, 30));
+    }
+
+    @Test
+    void keepsContactsApartThatDifferOnlyInCase() throws IOException {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        store.appendAll("Alice", List.of(new ChatEntry("Bob", true, "an Bob", 1L)));
+        store.appendAll("Alice", List.of(new ChatEntry("bob", true, "an bob", 2L)));
+        store.close();
+
+        // Auch ohne Unterscheidung der Groß-/Kleinschreibung dürfen sich die Dateinamen nicht decken
+        Path ownerDir;
+        try (Stream<Path> dirs = Files.list(store.getBaseDir())) {
+            ownerDir = dirs.filter(Files::isDirectory).findFirst().orElseThrow();
+        }
+        Set<String> names = new HashSet<>();
+        try (Stream<Path> files = Files.list(ownerDir)) {
+            files.forEach(file -> assertTrue(names.add(file.getFileName().toString().toLowerCase(Locale.ROOT)),
+                    file.getFileName().toString()));
+        }
+
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        assertEquals(List.of("Bob", "bob"), reopened.loadContacts("Alice"));
+        assertEquals("an Bob", reopened.loadConversation("Alice", "Bob").get(0).getMessage());
+        assertEquals("an bob", reopened.loadConversation("Alice", "bob").get(0).getMessage());
+    }
+
+    @Test
+    void renamesShardsWrittenWithUppercaseFileNames() throws IOException {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        store.appendAll("Alice", List.of(new ChatEntry("Bob", true, "Hallo", 1L)));
+        store.close();
+
+        // Ablage wie vor der Kodierung der Großbuchstaben: Namen unverändert, kein Marker
+        Path base = store.getBaseDir();
+        Files.delete(base.resolve("layout"));
+        Path ownerDir = Files.move(base.resolve("^alice"), base.resolve("Alice"));
+        Files.move(ownerDir.resolve("^bob.chb"), ownerDir.resolve("Bob.chb"));
+        Files.deleteIfExists(ownerDir.resolve("^bob.chb.idx"));
+
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        assertEquals("Hallo", reopened.loadConversation("Alice", "Bob").get(0).getMessage());
+        assertTrue(Files.exists(base.resolve("^alice").resolve("^bob.chb")));
+        assertFalse(Files.exists(base.resolve("Alice")));
+    }
+
+    private static ChatEntry entry(int i) {
+        return new ChatEntry(CONTACT, i % 2 == 0, "Nachricht " + i, 1_700_000_000_000L + i * 1000L);
+    }
+
+    private static List<ChatEntry> entries(int from, int to) {
+        List<ChatEntry> entries = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            entries.add(entry(i));
+        }
+        return entries;
+    }
+
+    private static int[] range(int from, int to) {
+        int[] numbers = new int[to - from];
+        Arrays.setAll(numbers, i -> from + i);
+        return numbers;
+    }
+
+    private static byte[] record(HistoryFormat format, ChatEntry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.writeRecord(entry, out);
+        return out.toByteArray();
+    }
+
+    private static Path shard(HistoryStore store) {
+        return store.getBaseDir().resolve(OWNER).resolve(CONTACT + store.getFormat().fileSuffix());
+    }
+
+    private static void assertTexts(List<ChatEntry> entries, int... numbers) {
+        List<String> expected = new ArrayList<>();
+        for (int number : numbers) {
+            expected.add("Nachricht " + number);
+        }
+        List<String> actual = new ArrayList<>();
+        for (ChatEntry entry : entries) {
+            actual.add(entry.getMessage());
+        }
+        assertEquals(expected, actual);
+    }
+}
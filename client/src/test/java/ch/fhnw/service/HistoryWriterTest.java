@@ -0,0 +1,71 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistoryWriterTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void flushWaitsForEverythingSubmittedBefore() {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        try (HistoryWriter writer = new HistoryWriter(store, 16, 20)) {
+            for (int i = 0; i < 100; i++) {
+                writer.submit("alice", "bob", true, "Nachricht " + i);
+            }
+            writer.flush();
+            assertEquals(100, new HistoryStore(history, HistoryFormat.BINARY).loadConversation("alice", "bob").size());
+        }
+    }
+
+    @Test
+    void losesNothingSubmittedWhileClosing() throws InterruptedException {
+        Path history = dir.resolve("history.json");
+        HistoryStore store = new HistoryStore(history, HistoryFormat.BINARY);
+        // Kleine Queue: die Einreicher hängen beim close oft gerade im offer
+        HistoryWriter writer = new HistoryWriter(store, 16, 5);
+        CountDownLatch running = new CountDownLatch(THREADS);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String contact = "contact" + t;
+            Thread thread = new Thread(() -> {
+                running.countDown();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    writer.submitAll("alice", List.of(new ChatEntry(contact, true, "Nachricht " + i, i)));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        running.await();
+        Thread.sleep(10);
+        writer.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        HistoryStore reopened = new HistoryStore(history, HistoryFormat.BINARY);
+        for (int t = 0; t < THREADS; t++) {
+            List<ChatEntry> entries = reopened.loadConversation("alice", "contact" + t);
+            assertEquals(PER_THREAD, entries.size());
+            // Pro Einreicher bleibt die Reihenfolge erhalten, auch über close hinweg
+            for (int i = 0; i < PER_THREAD; i++) {
+                assertEquals(i, entries.get(i).getTimestamp());
+            }
+        }
+    }
+}
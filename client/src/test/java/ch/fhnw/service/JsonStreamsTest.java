@@ -0,0 +1,83 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.Message;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamsTest {
+
+    private final JsonFactory factory = Json.MAPPER.getFactory();
+    private final List<List<Message>> batches = new ArrayList<>();
+
+    @Test
+    void readsArrayFromFieldAndSkipsOtherFields() throws IOException {
+        String body = "{\"status\": {\"ok\": [1, 2]}, \"messages\": ["
+                + "{\"username\": \"bob\", \"message\": \"eins\"}, null,"
+                + "{\"username\": \"carol\", \"message\": \"zwei\"},"
+                + "{\"username\": \"bob\", \"message\": \"drei\"}], \"more\": false}";
+
+        assertEquals(3, read(body, 2));
+
+        assertEquals(2, batches.size());
+        assertEquals(List.of(2, 1), List.of(batches.get(0).size(), batches.get(1).size()));
+        assertEquals("carol", batches.get(0).get(1).getUsername());
+        assertEquals("drei", batches.get(1).get(0).getMessage());
+    }
+
+    @Test
+    void readsBareArray() throws IOException {
+        assertEquals(1, read("[{\"username\": \"bob\", \"message\": \"Hallo\"}]", 256));
+        assertEquals(0, read("{\"messages\": []}", 256));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void unknownShapeIsMinusOne() throws IOException {
+        assertEquals(-1, read("\"Fehler\"", 256));
+        assertEquals(-1, read("42", 256));
+        assertEquals(-1, read("{\"error\": \"kein Token\"}", 256));
+        // Das Feld gibt es, es ist aber kein Array
+        assertEquals(-1, read("{\"messages\": {\"username\": \"bob\"}}", 256));
+        assertTrue(batches.isEmpty());
+        assertNull(JsonStreams.readStringList(factory, stream("{\"error\": 1}"), "users"));
+    }
+
+    @Test
+    void truncatedResponseIsAnError() {
+        // Gemeldet wird das Ende von Jackson oder von JsonStreams, in jedem Fall als IOException
+        assertThrows(IOException.class, () -> read("{\"messages\": [{\"username\": \"bob\"}, ", 256));
+        assertThrows(IOException.class, () -> read("{\"messages\": [{\"username\": \"bob\"}", 256));
+        assertThrows(IOException.class, () -> read("{\"status\": 1", 256));
+        assertThrows(IOException.class,
+                () -> JsonStreams.readStringList(factory, stream("[\"alice\", \"bob\""), "users"));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void stringListDropsDuplicatesNullsAndNestedValues() throws IOException {
+        List<String> users = JsonStreams.readStringList(factory,
+                stream("{\"users\": [\"bob\", null, \"alice\", {\"name\": \"x\"}, [\"y\"], \"bob\"]}"), "users");
+        assertEquals(List.of("bob", "alice"), users);
+    }
+
+    private int read(String body, int batchSize) throws IOException {
+        return JsonStreams.<Message>readArray(factory, stream(body), "messages", Json.MESSAGE_READER, batchSize,
+                batches::add);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
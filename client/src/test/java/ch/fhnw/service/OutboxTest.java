@@ -0,0 +1,177 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+
+    @TempDir
+    Path dir;
+
+    private final ScriptedService service = new ScriptedService();
+    private final List<OutboxMessage> delivered = new CopyOnWriteArrayList<>();
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Outbox outbox;
+
+    @AfterEach
+    void tearDown() {
+        if (outbox != null) {
+            outbox.close();
+        }
+        service.close();
+    }
+
+    @Test
+    void retriesAfterTransportErrorUntilDelivered() throws InterruptedException {
+        service.script(CompletableFuture.failedFuture(new IOException("Verbindung abgebrochen")),
+                CompletableFuture.completedFuture(true));
+        outbox = open(5);
+        outbox.start("alice");
+        outbox.submit("alice", "bob", "Hallo");
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, service.calls.get());
+        assertEquals(1, delivered.size());
+        assertTrue(failures.isEmpty());
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    void givesUpAtOnceWhenServerRejects() throws InterruptedException {
+        service.script(CompletableFuture.completedFuture(false));
+        outbox = open(5);
+        outbox.start("alice");
+        outbox.submit("alice", "bob", "Hallo");
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, service.calls.get());
+        assertEquals(1, failures.size());
+        assertNull(failures.get(0));
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws InterruptedException {
+        IOException error = new IOException("Server weg");
+        service.script(CompletableFuture.failedFuture(error), CompletableFuture.failedFuture(error));
+        outbox = open(2);
+        outbox.start("alice");
+        outbox.submit("alice", "bob", "Hallo");
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, service.calls.get());
+        assertEquals(List.of(error), failures);
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    void keepsUndeliveredMessagesAcrossRestart() throws InterruptedException {
+        outbox = open(5);
+        outbox.submit("alice", "bob", "Erst nach dem Login");
+        outbox.close();
+
+        service.script(CompletableFuture.completedFuture(true));
+        outbox = open(5);
+        assertEquals(1, outbox.getPending("alice").size());
+        outbox.start("alice");
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("Erst nach dem Login", delivered.get(0).getMessage());
+    }
+
+    @Test
+    void deliveredMessagesAreNotSentAgainAfterRestart() throws InterruptedException {
+        service.script(CompletableFuture.completedFuture(true));
+        outbox = open(5);
+        outbox.start("alice");
+        outbox.submit("alice", "bob", "Einmal");
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // close wartet auf den Journal-Thread
+        outbox.close();
+
+        outbox = open(5);
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    void keepsRejectedMessagesUntilResentOrDismissed() throws InterruptedException {
+        service.script(CompletableFuture.completedFuture(false), CompletableFuture.completedFuture(false));
+        outbox = open(5);
+        outbox.start("alice");
+        outbox.submit("alice", "bob", "Erster Versuch");
+        outbox.submit("alice", "carol", "Wird verworfen");
+        outbox.close();
+
+        // Nach dem Neustart sind beide als aufgegeben bekannt, gesendet wird nichts
+        outbox = open(5);
+        outbox.start("alice");
+        List<OutboxMessage> failed = outbox.getFailed("alice");
+        assertEquals(List.of("bob", "carol"), failed.stream().map(OutboxMessage::getRecipient).toList());
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(2, service.calls.get());
+
+        service.script(CompletableFuture.completedFuture(true));
+        assertTrue(outbox.resend("alice", failed.get(0).getId()));
+        assertTrue(outbox.dismiss("alice", failed.get(1).getId()));
+        // Die Antwort ist schon fertig, zugestellt wird noch im aufrufenden Thread
+        assertEquals(1, delivered.size());
+        assertEquals("Erster Versuch", delivered.get(0).getMessage());
+        outbox.close();
+
+        outbox = open(5);
+        assertTrue(outbox.getFailed("alice").isEmpty());
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    private Outbox open(int maxAttempts) {
+        return new Outbox(service, dir.resolve("outbox.jsonl"), new Outbox.DeliveryListener() {
+            @Override
+            public void delivered(OutboxMessage message, long deliveredAt) {
+                delivered.add(message);
+                done.countDown();
+            }
+
+            @Override
+            public void failed(OutboxMessage message, Throwable lastError) {
+                failures.add(lastError);
+                done.countDown();
+            }
+        }, maxAttempts);
+    }
+
+    // Antwortet der Reihe nach mit den vorgegebenen Ergebnissen, ohne Netz.
+    private static final class ScriptedService extends ChatService {
+        private final Queue<CompletableFuture<Boolean>> results = new ArrayDeque<>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @SafeVarargs
+        final synchronized void script(CompletableFuture<Boolean>... answers) {
+            results.addAll(List.of(answers));
+        }
+
+        @Override
+        public synchronized CompletableFuture<Boolean> sendMessageAsync(String recipient, String messageText) {
+            calls.incrementAndGet();
+            CompletableFuture<Boolean> next = results.poll();
+            return next != null ? next : CompletableFuture.failedFuture(new IOException("Kein Ergebnis vorgesehen"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.fhnw.service;
+
+import ch.fhnw.loadtest.StandInServer;
+import ch.fhnw.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// PollingEngine gegen den StandInServer, der Long-Poll unterstützt und Fehler einstreuen kann.
+class PollingEngineTest {
+
+    private final LinkedBlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    private StandInServer server;
+    private ChatService sender;
+    private ChatService receiver;
+    private PollingEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StandInServer(0);
+        server.start();
+        sender = login("sender");
+        receiver = login("receiver");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.close();
+        }
+        sender.close();
+        receiver.close();
+        server.close();
+    }
+
+    @Test
+    void deliversThroughLongPollWithoutBusyPolling() throws Exception {
+        LatencyStats longPolls = Metrics.stats("Http", "/chat/poll (long-poll)");
+        long longPollsBefore = longPolls.getCount();
+        engine = new PollingEngine(receiver, inbox::addAll);
+        engine.start();
+        Thread.sleep(1_500);
+
+        // Im Leerlauf ist genau eine Anfrage offen
+        assertTrue(engine.isLongPoll());
+        assertEquals(1, engine.getRequestCount());
+
+        long sent = System.nanoTime();
+        assertTrue(sender.sendMessage("receiver", "Hallo"));
+        Message message = inbox.poll(5, TimeUnit.SECONDS);
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+
+        assertNotNull(message);
+        assertEquals("Hallo", message.getMessage());
+        assertTrue(latencyMillis < 1_000, "Zustellung dauerte " + latencyMillis + " ms");
+        assertTrue(engine.getRequestCount() <= 2);
+        // Der beantwortete Long-Poll steht in den eigenen Messwerten, nicht bei den kurzen Polls
+        assertTrue(await(() -> longPolls.getCount() > longPollsBefore, Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void probesLongPollAgainAfterAnOutage() throws Exception {
+        engine = new PollingEngine(receiver, inbox::addAll, true, Duration.ofMillis(500));
+        server.setFailureRate(1.0);
+        engine.start();
+        assertTrue(await(() -> !engine.isLongPoll(), Duration.ofSeconds(20)));
+
+        server.setFailureRate(0);
+        assertTrue(await(engine::isLongPoll, Duration.ofSeconds(20)));
+        // Die Probe hält: der Server lässt die Anfrage offen, statt sofort leer zu antworten
+        Thread.sleep(1_500);
+        assertTrue(engine.isLongPoll());
+
+        assertTrue(sender.sendMessage("receiver", "Wieder da"));
+        Message message = inbox.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("Wieder da", message.getMessage());
+    }
+
+    @Test
+    void staysWithAdaptivePollingWhenLongPollIsOff() throws Exception {
+        engine = new PollingEngine(receiver, inbox::addAll, false, Duration.ZERO);
+        engine.start();
+        Thread.sleep(1_000);
+        assertFalse(engine.isLongPoll());
+
+        assertTrue(sender.sendMessage("receiver", "Adaptiv"));
+        Message message = inbox.poll(20, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertFalse(engine.isLongPoll());
+    }
+
+    private ChatService login(String user) throws Exception {
+        ChatService service = new ChatService();
+        service.setBaseUrl(server.getBaseUrl());
+        service.register(user, "secret");
+        assertTrue(service.login(user, "secret"));
+        return service;
+    }
+
+    private static boolean await(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
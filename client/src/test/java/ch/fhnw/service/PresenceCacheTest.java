@@ -0,0 +1,72 @@
+package ch.fhnw.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PresenceCacheTest {
+
+    private static final List<String> USERS = List.of("alice", "bob", "carol", "dave");
+
+    // Die Online-Liste wird ohne ChatService übernommen
+    private final PresenceCache cache = new PresenceCache(null);
+
+    @Test
+    void reportsOnlyChanges() {
+        List<String> events = new ArrayList<>();
+        cache.addListener((user, online) -> events.add(user + (online ? " online" : " offline")));
+
+        cache.updateAll(List.of("bob"));
+        cache.updateAll(List.of("bob", "carol"));
+        cache.updateAll(List.of("carol"));
+
+        assertEquals(List.of("bob online", "carol online", "bob offline"), events);
+    }
+
+    @Test
+    void overlappingUpdatesEndWithTheCachedState() throws InterruptedException {
+        Map<String, Boolean> last = new HashMap<>();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        cache.addListener((user, online) -> {
+            if (concurrent.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            last.put(user, online);
+            concurrent.decrementAndGet();
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    List<String> online = new ArrayList<>();
+                    for (String user : USERS) {
+                        if (random.nextBoolean()) {
+                            online.add(user);
+                        }
+                    }
+                    cache.updateAll(online);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, overlaps.get());
+        Set<String> online = cache.getOnlineUsers();
+        for (String user : USERS) {
+            assertEquals(online.contains(user), last.getOrDefault(user, false), user);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ch.fhnw.service;
+
+import ch.fhnw.model.ChatEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exactMatchesRankBeforePrefixMatches() {
+        SearchIndex index = new SearchIndex();
+        index.add("bob", 0, entry("Treffen wir uns am Bahnhof?", 1));
+        index.add("bob", 1, entry("Bahn fährt um acht", 2));
+        index.add("carol", 0, entry("Bahnhofstrasse 5", 3));
+        index.add("carol", 1, entry("Ohne Treffer", 4));
+
+        List<SearchHit> hits = index.query("bahn", 10);
+
+        assertEquals(3, hits.size());
+        assertEquals(1, hits.get(0).position());
+        assertEquals("bob", hits.get(0).contact());
+        // Gleiche Punktzahl: der neuere Eintrag zuerst
+        assertEquals(List.of("carol", "bob"), List.of(hits.get(1).contact(), hits.get(2).contact()));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void everyQueryTermMustMatch() {
+        SearchIndex index = new SearchIndex();
+        index.add("bob", 0, entry("Kino heute Abend", 1));
+        index.add("bob", 1, entry("Kino morgen", 2));
+
+        List<SearchHit> hits = index.query("kin abe", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(0, hits.get(0).position());
+        // Punktzahlen der Suchwörter addieren sich: zwei Präfix-Treffer
+        assertEquals(2, hits.get(0).score());
+        assertEquals(4, index.query("kino abend", 10).get(0).score());
+        assertTrue(index.query("kino kaffee", 10).isEmpty());
+    }
+
+    @Test
+    void singleCharacterMatchesOnlyWholeWords() {
+        SearchIndex index = new SearchIndex();
+        index.add("bob", 0, entry("a ist kein Anfang", 1));
+        index.add("bob", 1, entry("abc", 2));
+
+        List<SearchHit> hits = index.query("a", 10);
+        assertEquals(1, hits.size());
+        assertEquals(0, hits.get(0).position());
+        // Ab zwei Zeichen zählen auch Präfixe
+        assertEquals(1, index.query("ab", 10).get(0).position());
+        assertEquals(0, index.query("an", 10).get(0).position());
+    }
+
+    @Test
+    void acceptsPositionsOnlyInOrder() {
+        SearchIndex index = new SearchIndex();
+        assertTrue(index.add("bob", 0, entry("eins", 1)));
+        assertFalse(index.add("bob", 2, entry("drei", 3)));
+        assertEquals(1, index.indexedCount("bob"));
+        assertTrue(index.query("drei", 10).isEmpty());
+    }
+
+    @Test
+    void savedIndexAnswersLikeTheOriginal() throws IOException {
+        SearchIndex index = new SearchIndex();
+        List<ChatEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(entry("Nachricht " + i + (i % 7 == 0 ? " Geburtstag" : ""), i));
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            index.add(i % 2 == 0 ? "bob" : "carol", i / 2, entries.get(i));
+        }
+        Path file = dir.resolve("search.idx");
+        index.save(file);
+        assertFalse(index.isDirty());
+
+        SearchIndex loaded = SearchIndex.load(file);
+        assertEquals(index.query("geburt", 100), loaded.query("geburt", 100));
+        assertEquals(100, loaded.indexedCount("carol"));
+        assertEquals(29, loaded.query("geburtstag nachricht", 100).size());
+    }
+
+    @Test
+    void storeKeepsOpenedIndexCurrentAndReadsHitsPerShard() throws IOException {
+        HistoryStore store = new HistoryStore(dir.resolve("history.json"), HistoryFormat.BINARY);
+        store.appendAll("alice", List.of(
+                new ChatEntry("bob", true, "Pizza heute?", 10),
+                new ChatEntry("carol", false, "Keine Pizza", 20)));
+        store.openSearchIndex("alice");
+
+        store.appendAll("alice", List.of(
+                new ChatEntry("bob", false, "Pizza gerne", 30),
+                new ChatEntry("bob", true, "Kino?", 40)));
+        // Ein älterer Eintrag verschiebt die Positionen in der Shard von bob
+        store.importAll("alice", List.of(new ChatEntry("bob", false, "Pizzeria am See", 5)));
+
+        List<SearchHit> hits = store.search("alice", "pizza", 10);
+        assertEquals(List.of("Pizza gerne", "Keine Pizza", "Pizza heute?"),
+                hits.stream().map(SearchHit::message).toList());
+        assertEquals(List.of("Pizzeria am See"),
+                store.search("alice", "pizzeria", 10).stream().map(SearchHit::message).toList());
+    }
+
+    private static ChatEntry entry(String text, long timestamp) {
+        return new ChatEntry("bob", false, text, timestamp);
+    }
+}
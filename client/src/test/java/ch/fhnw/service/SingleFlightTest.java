@@ -0,0 +1,91 @@
+package ch.fhnw.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight flights = new SingleFlight();
+    private final AtomicInteger started = new AtomicInteger();
+    private CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    @Test
+    void concurrentCallersShareOneRequest() {
+        CompletableFuture<String> first = flights.run("users", Duration.ZERO, request());
+        CompletableFuture<String> second = flights.run("users", Duration.ZERO, request());
+        CompletableFuture<String> other = flights.run("online:bob", Duration.ZERO, request());
+
+        assertEquals(2, started.get());
+        upstream.complete("alice,bob");
+        assertEquals("alice,bob", first.join());
+        assertEquals("alice,bob", second.join());
+        assertEquals("alice,bob", other.join());
+    }
+
+    @Test
+    void reusesResultUntilMinIntervalExpires() throws InterruptedException {
+        upstream.complete("erste");
+        assertEquals("erste", flights.run("users", Duration.ofMillis(200), request()).join());
+        assertEquals("erste", flights.run("users", Duration.ofMillis(200), request()).join());
+        assertEquals(1, started.get());
+
+        Thread.sleep(250);
+        upstream = CompletableFuture.completedFuture("zweite");
+        assertEquals("zweite", flights.run("users", Duration.ofMillis(200), request()).join());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void doesNotKeepFailures() {
+        upstream.completeExceptionally(new IOException("Server weg"));
+        assertTrue(flights.run("users", Duration.ofMinutes(1), request()).isCompletedExceptionally());
+
+        upstream = CompletableFuture.completedFuture("wieder da");
+        assertEquals("wieder da", flights.run("users", Duration.ofMinutes(1), request()).join());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void cancelsSharedRequestOnlyWhenAllWaitersCancelled() {
+        CompletableFuture<String> first = flights.run("users", Duration.ZERO, request());
+        CompletableFuture<String> second = flights.run("users", Duration.ZERO, request());
+
+        first.cancel(true);
+        assertFalse(upstream.isCancelled());
+        assertFalse(second.isDone());
+
+        second.cancel(true);
+        assertTrue(upstream.isCancelled());
+        // Der abgebrochene Eintrag ist weg, der nächste Aufruf startet neu
+        upstream = new CompletableFuture<>();
+        flights.run("users", Duration.ZERO, request());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void failingStartReachesTheCaller() {
+        CompletableFuture<String> result = flights.run("users", Duration.ofMinutes(1), () -> {
+            throw new IllegalStateException("kein Token");
+        });
+        assertTrue(result.isCompletedExceptionally());
+
+        upstream.complete("nach dem Login");
+        assertEquals("nach dem Login", flights.run("users", Duration.ofMinutes(1), request()).join());
+    }
+
+    private Supplier<CompletableFuture<String>> request() {
+        return () -> {
+            started.incrementAndGet();
+            return upstream;
+        };
+    }
+}
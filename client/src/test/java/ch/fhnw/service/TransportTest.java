@@ -0,0 +1,36 @@
+package ch.fhnw.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransportTest {
+
+    private static final URI POLL = URI.create("http://localhost:1/chat/poll");
+
+    @Test
+    void eachTransportHasItsOwnBreakerGaugeUntilClosed() throws MalformedObjectNameException {
+        Transport first = new Transport(TransportConfig.DEFAULT);
+        Transport second = new Transport(TransportConfig.DEFAULT);
+        first.route(POLL);
+        second.route(POLL);
+        assertEquals(2, breakerGauges());
+
+        first.close();
+        assertEquals(1, breakerGauges());
+        second.close();
+        assertEquals(0, breakerGauges());
+    }
+
+    private static long breakerGauges() throws MalformedObjectNameException {
+        return ManagementFactory.getPlatformMBeanServer()
+                .queryNames(new ObjectName("ch.fhnw.chatclient:type=Breaker,*"), null).stream()
+                .filter(name -> ObjectName.unquote(name.getKeyProperty("name")).endsWith(" " + POLL))
+                .count();
+    }
+}